@@ -0,0 +1,137 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import com.google.common.collect.Multimap;
+import isl.reasoner.InstanceFetcher;
+import isl.reasoner.UnsupportedExtensionException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading instance data and querying its classes and instances. The query
+ * variants share one fetcher; the contended ones between as many threads as
+ * there are cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FetcherBenchmark {
+
+    @Param({"instances", "synthetic-instances-10000"})
+    public String input;
+
+    private String contents;
+    private byte[] bytes;
+    private String extention;
+    private InstanceFetcher fetcher;
+    private String[] classes;
+
+    @Setup
+    public void setUp() throws IOException, UnsupportedExtensionException {
+        contents = Fixtures.contents(input);
+        bytes = contents.getBytes(Fixtures.UTF8);
+        extention = Fixtures.extention(input);
+        fetcher = new InstanceFetcher(contents, extention);
+        classes = fetcher.getClassUris().toArray(new String[0]);
+    }
+
+    /**
+     * The position of each thread in the list of classes.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public InstanceFetcher read() throws UnsupportedExtensionException {
+        return new InstanceFetcher(contents, extention);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public InstanceFetcher readOffHeap() throws UnsupportedExtensionException {
+        return new InstanceFetcher(new ByteArrayInputStream(bytes), extention, true);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Collection<String> getClassUris() {
+        return fetcher.getClassUris();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Collection<String> getClassUrisContended() {
+        return fetcher.getClassUris();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Collection<Pair<String, String>> getInstanceUris(Cursor cursor) {
+        return fetcher.getInstanceUris(classes[cursor.next++ % classes.length]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Collection<Pair<String, String>> getInstanceUrisContended(Cursor cursor) {
+        return fetcher.getInstanceUris(classes[cursor.next++ % classes.length]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Multimap<String, Pair<String, String>> getClassAndInstanceUris() {
+        return fetcher.getClassAndInstanceUris();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Multimap<String, Pair<String, String>> getClassAndInstanceUrisContended() {
+        return fetcher.getClassAndInstanceUris();
+    }
+}
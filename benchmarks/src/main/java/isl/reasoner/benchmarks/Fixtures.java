@@ -0,0 +1,149 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The inputs of the benchmarks: the schemas and instance data checked in
+ * under /fixtures, and generated ones. A fixture is named after its file
+ * without the extension ("crm", "skos", "cerif", "instances"), or
+ * "synthetic-N" for a generated schema of N classes and
+ * "synthetic-instances-N" for N generated instances of it.
+ */
+final class Fixtures {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String SYNTHETIC = "synthetic-";
+    private static final String SYNTHETIC_INSTANCES = "synthetic-instances-";
+    private static final String SYNTHETIC_NTRIPLES = "synthetic-nt-";
+
+    private static final Map<String, String> EXTENTIONS = new HashMap<String, String>();
+
+    static {
+        EXTENTIONS.put("crm", ".rdfs");
+        EXTENTIONS.put("skos", ".ttl");
+        EXTENTIONS.put("cerif", ".ttl");
+        EXTENTIONS.put("instances", ".ttl");
+    }
+
+    //the fixtures written to disk so far
+    private static final Map<String, File> files = new HashMap<String, File>();
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param name the fixture
+     * @return the extention of the fixture, with the leading dot
+     */
+    static String extention(String name) {
+        if (name.startsWith(SYNTHETIC_NTRIPLES)) {
+            return ".nt";
+        } else if (name.startsWith(SYNTHETIC)) {
+            return ".ttl";
+        }
+        String extention = EXTENTIONS.get(name);
+        if (extention == null) {
+            throw new IllegalArgumentException("Unknown fixture: " + name);
+        }
+        return extention;
+    }
+
+    /**
+     * @param name the fixture
+     * @return the contents of the fixture
+     * @throws IOException if a checked-in fixture cannot be read
+     */
+    static String contents(String name) throws IOException {
+        if (name.startsWith(SYNTHETIC_NTRIPLES)) {
+            //the synthetic schema, written as N-Triples
+            String turtle = SyntheticSchema.schema(Integer.parseInt(name.substring(SYNTHETIC_NTRIPLES.length())));
+            Model model = ModelFactory.createDefaultModel();
+            model.read(new ByteArrayInputStream(turtle.getBytes(UTF8)), null, "TURTLE");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            model.write(out, "N-TRIPLE");
+            return new String(out.toByteArray(), UTF8);
+        } else if (name.startsWith(SYNTHETIC_INSTANCES)) {
+            int instances = Integer.parseInt(name.substring(SYNTHETIC_INSTANCES.length()));
+            return SyntheticSchema.instances(SyntheticSchema.DEFAULT_CLASSES, instances);
+        } else if (name.startsWith(SYNTHETIC)) {
+            return SyntheticSchema.schema(Integer.parseInt(name.substring(SYNTHETIC.length())));
+        }
+        InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name + extention(name));
+        if (in == null) {
+            throw new IOException("Missing fixture: " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), UTF8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a fixture to a temporary file (once per JVM), for the APIs that
+     * read files or URLs.
+     *
+     * @param name the fixture
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    static synchronized File file(String name) throws IOException {
+        File file = files.get(name);
+        if (file == null) {
+            file = File.createTempFile("reasoner-" + name + "-", extention(name));
+            file.deleteOnExit();
+            OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(contents(name).getBytes(UTF8));
+            } finally {
+                out.close();
+            }
+            files.put(name, file);
+        }
+        return file;
+    }
+}
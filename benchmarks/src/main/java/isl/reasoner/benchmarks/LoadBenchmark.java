@@ -0,0 +1,103 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import isl.reasoner.OntologyReasoner;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a schema from scratch: parsing, classification and indexing. The
+ * schema cache is disabled so every invocation does the whole work; the
+ * contended variants load from several threads at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"crm", "skos", "cerif", "synthetic-500"})
+    public String schema;
+
+    private File file;
+    private String location;
+    private String extention;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Fixtures.file(schema);
+        location = file.toURI().toString();
+        extention = Fixtures.extention(schema);
+    }
+
+    private static OntologyReasoner reasoner() {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.setSchemaCache(null);
+        return reasoner;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Map<String, String> initiateModelFile() throws IOException {
+        return reasoner().initiateModel(file);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Map<String, String> initiateModelFileContended() throws IOException {
+        return reasoner().initiateModel(file);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean initiateModelFileContent() {
+        return reasoner().initiateModelFileContent(location, extention);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean initiateModelFileContentContended() {
+        return reasoner().initiateModelFileContent(location, extention);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import isl.reasoner.OntologyReasoner;
+import isl.reasoner.ReasoningProfile;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a schema with each {@link ReasoningProfile}, with the schema cache
+ * disabled. Run it with -prof gc to compare the allocations as well; the
+ * retained heap and the equality of the results are reported by
+ * {@link ProfileComparison}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfileBenchmark {
+
+    @Param({"crm", "skos", "cerif", "synthetic-500"})
+    public String schema;
+
+    @Param({"PELLET_DL", "OWL_MICRO", "RDFS", "FAST"})
+    public ReasoningProfile profile;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Fixtures.file(schema);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Map<String, String> initiateModel() throws IOException {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.setSchemaCache(null);
+        reasoner.setReasoningProfile(profile);
+        return reasoner.initiateModel(file);
+    }
+}
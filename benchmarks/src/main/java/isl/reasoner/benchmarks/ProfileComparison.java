@@ -0,0 +1,148 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import isl.reasoner.OntologyReasoner;
+import isl.reasoner.ReasoningProfile;
+import isl.reasoner.SchemaIndex;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Loads every schema given on the command line (fixture names, as in the
+ * benchmarks) with each {@link ReasoningProfile} and prints one JSON object
+ * per line: the load time, the bytes allocated while loading, the heap freed
+ * when the loaded reasoner is released (Pellet also keeps global term tables,
+ * which are not counted) and how
+ * many classes, class properties and property objects differ from
+ * {@link ReasoningProfile#PELLET_DL}. Terms of the OWL namespace
+ * (owl:Thing, owl:Nothing, owl:bottomObjectProperty...) are only produced by
+ * Pellet and are left out of the comparison.
+ *
+ * java -cp target/benchmarks.jar isl.reasoner.benchmarks.ProfileComparison crm cerif synthetic-2000
+ */
+public class ProfileComparison {
+
+    private static final String OWL = "http://www.w3.org/2002/07/owl#";
+
+    public static void main(String[] args) throws IOException {
+        List<String> schemas = args.length > 0 ? Arrays.asList(args)
+                : Arrays.asList("crm", "skos", "cerif", "synthetic-500");
+        for (String schema : schemas) {
+            File file = Fixtures.file(schema);
+            SchemaIndex reference = null;
+            for (ReasoningProfile profile : ReasoningProfile.values()) {
+                OntologyReasoner reasoner = new OntologyReasoner();
+                reasoner.setSchemaCache(null);
+                reasoner.setReasoningProfile(profile);
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                reasoner.initiateModel(file);
+                boolean consistent = reasoner.isConsistent();
+                long millis = (System.nanoTime() - start) / 1000000;
+                allocated = allocatedBytes() - allocated;
+                SchemaIndex index = reasoner.getSchemaIndex();
+                //measured by releasing the reasoner (but not its index)
+                long retained = usedHeap();
+                reasoner = null;
+                retained -= usedHeap();
+                if (reference == null) {
+                    reference = index;
+                }
+                Set<String> classes = terms(reference.getAllClasses());
+                int classDiffs = differences(classes, terms(index.getAllClasses()));
+                int propertyDiffs = 0;
+                Set<String> properties = new TreeSet<String>();
+                for (String uri : classes) {
+                    Set<String> expected = terms(reference.listProperties(uri));
+                    if (differences(expected, terms(index.listProperties(uri))) > 0) {
+                        propertyDiffs++;
+                    }
+                    properties.addAll(expected);
+                }
+                int objectDiffs = 0;
+                for (String uri : properties) {
+                    if (differences(terms(reference.listObjects(uri)), terms(index.listObjects(uri))) > 0) {
+                        objectDiffs++;
+                    }
+                }
+                System.out.println("{\"schema\":\"" + schema + "\",\"profile\":\"" + profile
+                        + "\",\"loadMillis\":" + millis + ",\"allocatedBytes\":" + allocated + ",\"retainedBytes\":" + retained
+                        + ",\"consistent\":" + consistent + ",\"classes\":" + classes.size()
+                        + ",\"classDifferences\":" + classDiffs
+                        + ",\"propertyDifferences\":" + propertyDiffs
+                        + ",\"objectDifferences\":" + objectDiffs + "}");
+            }
+        }
+    }
+
+    private static Set<String> terms(List<String> uris) {
+        Set<String> terms = new TreeSet<String>();
+        if (uris != null) {
+            for (String uri : uris) {
+                if (!uri.startsWith(OWL)) {
+                    terms.add(uri);
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static int differences(Set<String> expected, Set<String> actual) {
+        Set<String> missing = new TreeSet<String>(expected);
+        missing.removeAll(actual);
+        Set<String> extra = new TreeSet<String>(actual);
+        extra.removeAll(expected);
+        return missing.size() + extra.size();
+    }
+
+    /**
+     * The bytes allocated so far by this thread, or -1 if the JVM does not
+     * count them.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import isl.reasoner.OntologyReasoner;
+import isl.reasoner.PreparedQuery;
+import isl.reasoner.SchemaIndex;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The query methods of a loaded reasoner, called in turn for every class and
+ * property of the schema. The contended variants share one reasoner between
+ * as many threads as there are cores; the *Ids variants ask the index for
+ * term ids instead of URIs; the complete variants autocomplete the first
+ * letters of every class; select runs a compiled SPARQL query on the model;
+ * listLinkingProperties finds the properties between two classes, compared
+ * with asking listObjects for every property of the subject.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({"crm", "skos", "cerif", "synthetic-500"})
+    public String schema;
+
+    private OntologyReasoner reasoner;
+    private String[] classes;
+    private String[] properties;
+    private SchemaIndex index;
+    private int[] classIds;
+    private int[] propertyIds;
+    //the first letters of the local names, as typed for autocompletion
+    private String[] typed;
+
+    @Setup
+    public void setUp() throws Exception {
+        reasoner = new OntologyReasoner();
+        reasoner.initiateModel(Fixtures.file(schema));
+        classes = reasoner.getAllClasses().toArray(new String[0]);
+        TreeSet<String> all = new TreeSet<String>();
+        for (String c : classes) {
+            all.addAll(reasoner.listProperties(c));
+        }
+        List<String> known = new ArrayList<String>();
+        for (String p : all) {
+            //properties without objects are rejected by listObjects
+            try {
+                reasoner.listObjects(p);
+                known.add(p);
+            } catch (NullPointerException e) {
+            }
+        }
+        properties = known.toArray(new String[0]);
+        index = reasoner.getSchemaIndex();
+        classIds = index.getAllClassIds();
+        propertyIds = new int[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            propertyIds[i] = index.getDictionary().id(properties[i]);
+        }
+        typed = new String[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            String name = classes[i].substring(Math.max(classes[i].lastIndexOf('#'), classes[i].lastIndexOf('/')) + 1);
+            typed[i] = name.substring(0, Math.min(3, name.length()));
+        }
+    }
+
+    /**
+     * The position of each thread in the lists of classes and properties.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> getAllClasses() throws Exception {
+        return reasoner.getAllClasses();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<String> getAllClassesContended() throws Exception {
+        return reasoner.getAllClasses();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> listProperties(Cursor cursor) throws Exception {
+        return reasoner.listProperties(classes[cursor.next++ % classes.length]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<String> listPropertiesContended(Cursor cursor) throws Exception {
+        return reasoner.listProperties(classes[cursor.next++ % classes.length]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> listObjects(Cursor cursor) throws Exception {
+        return reasoner.listObjects(properties[cursor.next++ % properties.length]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<String> listObjectsContended(Cursor cursor) throws Exception {
+        return reasoner.listObjects(properties[cursor.next++ % properties.length]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> listLinkingProperties(Cursor cursor) {
+        int i = cursor.next++;
+        return reasoner.listLinkingProperties(classes[i % classes.length], classes[(i / classes.length) % classes.length]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> listLinkingPropertiesByObjects(Cursor cursor) throws Exception {
+        int i = cursor.next++;
+        String object = classes[(i / classes.length) % classes.length];
+        List<String> linking = new ArrayList<String>();
+        for (String property : reasoner.listProperties(classes[i % classes.length])) {
+            try {
+                if (reasoner.listObjects(property).contains(object)) {
+                    linking.add(property);
+                }
+            } catch (NullPointerException e) {
+            }
+        }
+        return linking;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> complete(Cursor cursor) {
+        return reasoner.complete(typed[cursor.next++ % typed.length], 10);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<String> completeContended(Cursor cursor) {
+        return reasoner.complete(typed[cursor.next++ % typed.length], 10);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> completeProperties(Cursor cursor) {
+        int i = cursor.next++;
+        return reasoner.completeProperties(classes[i % classes.length], typed[i % typed.length], 10);
+    }
+
+    /**
+     * The properties whose domain is a class, with a compiled query bound to
+     * the class.
+     */
+    private static final PreparedQuery DOMAIN = PreparedQuery.compile(
+            "SELECT ?property WHERE { ?property <http://www.w3.org/2000/01/rdf-schema#domain> ?class }");
+
+    @Benchmark
+    @Threads(1)
+    public List<Map<String, String>> select(Cursor cursor) {
+        return reasoner.select(DOMAIN, Collections.singletonMap("class", classes[cursor.next++ % classes.length]));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int[] listPropertyIds(Cursor cursor) {
+        return index.listPropertyIds(classIds[cursor.next++ % classIds.length]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int[] listPropertyIdsContended(Cursor cursor) {
+        return index.listPropertyIds(classIds[cursor.next++ % classIds.length]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int[] listObjectIds(Cursor cursor) {
+        return index.listObjectIds(propertyIds[cursor.next++ % propertyIds.length]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int[] listObjectIdsContended(Cursor cursor) {
+        return index.listObjectIds(propertyIds[cursor.next++ % propertyIds.length]);
+    }
+}
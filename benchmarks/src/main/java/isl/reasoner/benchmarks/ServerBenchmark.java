@@ -0,0 +1,120 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import isl.reasoner.OntologyReasoner;
+import isl.reasoner.ReasonerServer;
+import isl.reasoner.RemoteReasoner;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The query methods of a RemoteReasoner, answered by a ReasonerServer of the
+ * same process over the loopback interface: the cost of a round trip compared
+ * with the local calls of QueryBenchmark, and how the batch variants amortize
+ * it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@State(Scope.Benchmark)
+public class ServerBenchmark {
+
+    @Param({"crm", "synthetic-500"})
+    public String schema;
+
+    private ReasonerServer server;
+    private RemoteReasoner remote;
+    private String[] classes;
+
+    @Setup
+    public void setUp() throws Exception {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.initiateModel(Fixtures.file(schema));
+        server = new ReasonerServer(new InetSocketAddress("127.0.0.1", 0));
+        server.host(schema, reasoner);
+        server.start();
+        remote = new RemoteReasoner("http://127.0.0.1:" + server.getPort(), schema);
+        classes = reasoner.getAllClasses().toArray(new String[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * The position of each thread in the list of classes.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> getAllClasses() throws Exception {
+        return remote.getAllClasses();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> listProperties(Cursor cursor) throws Exception {
+        return remote.listProperties(classes[cursor.next++ % classes.length]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<String> listPropertiesContended(Cursor cursor) throws Exception {
+        return remote.listProperties(classes[cursor.next++ % classes.length]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Map<String, List<String>> listPropertiesBatch() throws Exception {
+        return remote.listProperties(Arrays.asList(classes));
+    }
+}
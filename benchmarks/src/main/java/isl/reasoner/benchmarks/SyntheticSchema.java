@@ -0,0 +1,101 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates schemas and instance data of a given size, in Turtle, with the
+ * shape of the real ones: a class tree with a branching factor of 4,
+ * properties with a domain and a range (one in five a subproperty of an
+ * earlier one) and labels. The output depends only on the size, so runs
+ * stay comparable.
+ */
+final class SyntheticSchema {
+
+    static final String NS = "http://example.org/synthetic#";
+
+    //the schema the generated instances belong to
+    static final int DEFAULT_CLASSES = 500;
+
+    private static final String PREFIXES = "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n"
+            + "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+            + "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+            + "@prefix s: <" + NS + "> .\n\n";
+
+    private SyntheticSchema() {
+    }
+
+    /**
+     * @param classes the number of classes; there are half as many properties
+     * @return the schema
+     */
+    static String schema(int classes) {
+        Random random = new Random(42);
+        StringBuilder ttl = new StringBuilder(PREFIXES);
+        for (int i = 0; i < classes; i++) {
+            ttl.append("s:C").append(i).append(" a owl:Class ; rdfs:label \"Class ").append(i).append("\"@en");
+            if (i > 0) {
+                ttl.append(" ; rdfs:subClassOf s:C").append((i - 1) / 4);
+            }
+            ttl.append(" .\n");
+        }
+        int properties = Math.max(1, classes / 2);
+        for (int i = 0; i < properties; i++) {
+            ttl.append("s:P").append(i).append(" a owl:ObjectProperty ; rdfs:label \"property ").append(i).append("\"@en")
+                    .append(" ; rdfs:domain s:C").append(random.nextInt(classes))
+                    .append(" ; rdfs:range s:C").append(random.nextInt(classes));
+            if (i > 0 && i % 5 == 0) {
+                ttl.append(" ; rdfs:subPropertyOf s:P").append(random.nextInt(i));
+            }
+            ttl.append(" .\n");
+        }
+        return ttl.toString();
+    }
+
+    /**
+     * @param classes the number of classes of the schema
+     * @param instances the number of instances; two in three have a label
+     * @return the instance data
+     */
+    static String instances(int classes, int instances) {
+        Random random = new Random(42);
+        StringBuilder ttl = new StringBuilder(PREFIXES);
+        for (int i = 0; i < instances; i++) {
+            ttl.append("s:i").append(i).append(" a s:C").append(random.nextInt(classes));
+            if (i % 3 != 0) {
+                ttl.append(" ; rdfs:label \"instance ").append(i).append("\"");
+            }
+            if (i > 0) {
+                ttl.append(" ; s:P").append(random.nextInt(Math.max(1, classes / 2)))
+                        .append(" s:i").append(random.nextInt(i));
+            }
+            ttl.append(" .\n");
+        }
+        return ttl.toString();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The consistency check of a loaded schema, running in the background. It is
+ * a {@link Future} of the answer {@link OntologyReasoner#isConsistent()}
+ * would give, and notifies its {@link ConsistencyListener}s when done.
+ *
+ * The checks of the initiateModel*Deferred methods also classify their
+ * schema with Pellet, which is where most of the time goes, and publish the
+ * answers of the classified schema before they complete; until then the
+ * reasoner answers from the asserted statements of the schema.
+ *
+ * A check is cancelled when its reasoner loads another schema. A check that
+ * has not started yet is then never run; one that has already started is left
+ * to finish (Pellet cannot be stopped safely halfway, and the answer is kept
+ * with the cached schema for the next time it is loaded) but is reported as
+ * cancelled.
+ */
+public final class ConsistencyCheck implements Future<Boolean> {
+
+    //all the checks are serialized by the Pellet lock anyway, one thread is enough
+    private static ExecutorService executor;
+
+    final SchemaCache.Entry entry;
+    private final FutureTask<Boolean> task;
+
+    //guarded by listeners
+    private final List<ConsistencyListener> listeners = new ArrayList<ConsistencyListener>();
+    private boolean notified;
+
+    /**
+     * @param entry the schemas to check, or null if none is loaded
+     * @param metrics where the time of the check is recorded
+     */
+    ConsistencyCheck(final SchemaCache.Entry entry, final ReasonerMetrics metrics) {
+        this(entry, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return entry == null || OntologyReasoner.isConsistent(entry, metrics);
+            }
+        });
+    }
+
+    /**
+     * @param entry the schemas to check
+     * @param check computes the answer
+     */
+    ConsistencyCheck(SchemaCache.Entry entry, Callable<Boolean> check) {
+        this.entry = entry;
+        this.task = new FutureTask<Boolean>(check) {
+            @Override
+            protected void done() {
+                notifyListeners();
+            }
+        };
+    }
+
+    /**
+     * Runs the check in the background, or right away if its answer is
+     * already known.
+     */
+    void start() {
+        if (entry == null || entry.isChecked()) {
+            task.run();
+        } else {
+            executor().execute(task);
+        }
+    }
+
+    /**
+     * Adds a listener, notifying it right away if the check is already done.
+     *
+     * @param listener the listener
+     */
+    public void addListener(ConsistencyListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("The listener is null");
+        }
+        synchronized (listeners) {
+            if (!notified) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.consistencyChecked(this);
+    }
+
+    private void notifyListeners() {
+        List<ConsistencyListener> notifying;
+        synchronized (listeners) {
+            notified = true;
+            notifying = new ArrayList<ConsistencyListener>(listeners);
+            listeners.clear();
+        }
+        for (ConsistencyListener listener : notifying) {
+            try {
+                listener.consistencyChecked(this);
+            } catch (RuntimeException e) {
+                //a failing listener must not keep the others from being notified
+            }
+        }
+    }
+
+    /**
+     * Cancels the check. A check that has already started is not interrupted,
+     * whatever the argument.
+     *
+     * @param mayInterruptIfRunning ignored
+     * @return false if the check was already done
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return task.cancel(false);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return task.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return task.isDone();
+    }
+
+    @Override
+    public Boolean get() throws InterruptedException, ExecutionException {
+        return task.get();
+    }
+
+    @Override
+    public Boolean get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return task.get(timeout, unit);
+    }
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "reasoner-consistency");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+}
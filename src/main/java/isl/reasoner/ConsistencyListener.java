@@ -0,0 +1,42 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+/**
+ * Notified when a {@link ConsistencyCheck} completes, fails or is cancelled.
+ */
+public interface ConsistencyListener {
+
+    /**
+     * Called once the check is done, on the thread that ran it (or on the
+     * thread that added the listener, if the check was already done). The
+     * {@link ConsistencyCheck#get()} of the check does not block here.
+     *
+     * @param check the check that is done
+     */
+    void consistencyChecked(ConsistencyCheck check);
+}
@@ -0,0 +1,157 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Tells where the ontologies named by owl:imports are read from. When a
+ * reasoner has a catalog (see
+ * {@link OntologyReasoner#setImportCatalog(ImportCatalog)}) the import
+ * closure of every schema it loads is resolved in parallel, each IRI read from
+ * the location it is mapped to, or from the IRI itself (through the
+ * {@link RemoteSchemaCache} of the reasoner, if any) when it is not mapped.
+ *
+ * The imported ontologies are read again on every load, but parsed once per
+ * process while their contents do not change, and shared by all the
+ * reasoners that import them from the same location.
+ */
+public final class ImportCatalog {
+
+    private final Map<String, String> locations = new HashMap<String, String>();
+
+    /**
+     * Reads an OASIS XML catalog, like the catalog-v001.xml files written by
+     * Protege: every uri element maps the IRI of its name attribute to the
+     * location of its uri attribute, relative to the catalog file.
+     *
+     * @param catalogFile the catalog
+     * @return the catalog
+     * @throws IOException if the file cannot be read or is not XML
+     */
+    public static ImportCatalog read(File catalogFile) throws IOException {
+        ImportCatalog catalog = new ImportCatalog();
+        URI base = catalogFile.getAbsoluteFile().toURI();
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            NodeList uris = factory.newDocumentBuilder().parse(catalogFile).getElementsByTagNameNS("*", "uri");
+            for (int i = 0; i < uris.getLength(); i++) {
+                Element uri = (Element) uris.item(i);
+                if (!uri.getAttribute("name").isEmpty() && !uri.getAttribute("uri").isEmpty()) {
+                    catalog.addMapping(uri.getAttribute("name"), base.resolve(uri.getAttribute("uri")).toString());
+                }
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e);
+        } catch (SAXException e) {
+            throw new IOException("Wrong catalog format: " + catalogFile, e);
+        }
+        return catalog;
+    }
+
+    /**
+     * Maps an ontology IRI to the location it is read from.
+     *
+     * @param iri the IRI used in owl:imports
+     * @param location a URL or a file name
+     */
+    public synchronized void addMapping(String iri, String location) {
+        locations.put(normalize(iri), location);
+    }
+
+    /**
+     * Maps an ontology IRI to a local file.
+     *
+     * @param iri the IRI used in owl:imports
+     * @param file the file holding the ontology
+     */
+    public void addMapping(String iri, File file) {
+        addMapping(iri, file.getAbsoluteFile().toURI().toString());
+    }
+
+    /**
+     * Tells where an ontology is read from.
+     *
+     * @param iri the IRI used in owl:imports
+     * @return the location it is mapped to, or the IRI itself
+     */
+    public synchronized String resolve(String iri) {
+        String location = locations.get(normalize(iri));
+        return location != null ? location : iri;
+    }
+
+    /**
+     * Forgets all the imported ontologies parsed so far by this process, so
+     * they are parsed again the next time they are imported.
+     */
+    public static void clearParsedImports() {
+        ImportResolver.shared().clear();
+    }
+
+    /**
+     * Return a digest of the mappings of this catalog, so that what was
+     * computed with it can be told apart from what was computed with another
+     * one.
+     *
+     * @return a hex encoded SHA-256
+     */
+    synchronized String key() {
+        StringBuilder mappings = new StringBuilder();
+        for (Map.Entry<String, String> mapping : new TreeMap<String, String>(locations).entrySet()) {
+            mappings.append(mapping.getKey()).append('\u0000').append(mapping.getValue()).append('\n');
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(mappings.toString().getBytes(Charset.forName("UTF-8")))) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String normalize(String iri) {
+        return iri.endsWith("#") ? iri.substring(0, iri.length() - 1) : iri;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves the owl:imports closure of a schema through an
+ * {@link ImportCatalog}, reading the imported ontologies concurrently. Every
+ * import is read again each time (through the {@link RemoteSchemaCache}, if
+ * any, for http and https URLs), but only parsed when its contents changed:
+ * the parsed ontologies are shared by the whole process, kept by location
+ * and contents within a memory budget, least recently used first. They are
+ * shared with the models they are imported into and must be treated as
+ * read-only.
+ *
+ * The ontologies a schema declares and imports are remembered by the digest
+ * of its contents, so the imports of a schema seen before are resolved
+ * without parsing it again.
+ */
+final class ImportResolver {
+
+    /**
+     * The default estimated heap the parsed ontologies may occupy.
+     */
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * How many schemas the declared imports are remembered for.
+     */
+    static final int DECLARED_SCHEMAS = 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final ImportResolver SHARED = new ImportResolver(DEFAULT_MAX_BYTES);
+
+    private final LinkedHashMap<String, Parsed> parsed = new LinkedHashMap<String, Parsed>(16, 0.75f, true);
+    private final LinkedHashMap<String, Declared> declared = new LinkedHashMap<String, Declared>(16, 0.75f, true);
+    private final long maxBytes;
+    private long usedBytes;
+
+    /**
+     * @param maxBytes the estimated heap the parsed ontologies may occupy; 0
+     * disables keeping them
+     */
+    ImportResolver(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Return the resolver shared by all the reasoners of this process
+     */
+    static ImportResolver shared() {
+        return SHARED;
+    }
+
+    /**
+     * Forgets the parsed ontologies and the declared imports.
+     */
+    synchronized void clear() {
+        parsed.clear();
+        declared.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Computes the key the declared imports of a schema are remembered by.
+     *
+     * @param content the contents of the schema (or a digest of them)
+     * @param base the base URI relative IRIs resolve against, or null
+     * @param lang the syntax of the contents
+     * @return a hex encoded SHA-256
+     */
+    static String key(byte[] content, String base, String lang) {
+        MessageDigest digest = sha256();
+        digest.update(String.valueOf(lang).getBytes(UTF8));
+        digest.update((byte) 0);
+        digest.update((base == null ? "" : base).getBytes(UTF8));
+        digest.update((byte) 0);
+        digest.update(content);
+        return hex(digest.digest());
+    }
+
+    /**
+     * @param schema the key of a schema
+     * @return what the schema declares and imports, or null if it was not
+     * seen (lately)
+     */
+    synchronized Declared declared(String schema) {
+        return declared.get(schema);
+    }
+
+    /**
+     * Remembers what a parsed schema declares and imports.
+     *
+     * @param schema the key of the schema
+     * @param model the parsed schema
+     * @return what it declares and imports
+     */
+    Declared declare(String schema, Model model) {
+        Declared found = Declared.of(model);
+        synchronized (this) {
+            declared.put(schema, found);
+            Iterator<String> it = declared.keySet().iterator();
+            while (declared.size() > DECLARED_SCHEMAS) {
+                it.next();
+                it.remove();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reads the ontologies a schema imports, directly or not, like
+     * {@link #resolve(Declared, ImportCatalog, RemoteSchemaCache)}.
+     *
+     * @param schema the parsed schema
+     */
+    Imports resolve(Model schema, ImportCatalog catalog, RemoteSchemaCache remote) {
+        return resolve(Declared.of(schema), catalog, remote);
+    }
+
+    /**
+     * Reads the ontologies a schema imports, directly or not. Imports that
+     * cannot be read are skipped, as Jena does.
+     *
+     * @param schema what the schema declares and imports
+     * @param catalog where the imported ontologies are read from
+     * @param remote the disk cache of http and https URLs, or null
+     * @return the imported ontologies
+     */
+    Imports resolve(Declared schema, ImportCatalog catalog, RemoteSchemaCache remote) {
+        Set<String> seen = new HashSet<String>(schema.ontologies);
+        Deque<Future<Parsed>> pending = new ArrayDeque<Future<Parsed>>();
+        submit(schema.imports, catalog, remote, seen, pending);
+        List<Model> imports = new ArrayList<Model>();
+        MessageDigest key = sha256();
+        long triples = 0;
+        while (!pending.isEmpty()) {
+            Parsed imported;
+            try {
+                imported = pending.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                continue;
+            }
+            imports.add(imported.model);
+            triples += imported.triples;
+            //where every import was read from and what it contained
+            key.update(imported.iri.getBytes(UTF8));
+            key.update((byte) 0);
+            key.update(imported.location.getBytes(UTF8));
+            key.update((byte) 0);
+            key.update(imported.digest);
+            submit(imported.imports, catalog, remote, seen, pending);
+        }
+        return new Imports(Collections.unmodifiableList(imports), hex(key.digest()), triples);
+    }
+
+    /**
+     * Starts reading the imported ontologies that were not seen yet.
+     */
+    private void submit(List<String> imports, ImportCatalog catalog, RemoteSchemaCache remote,
+            Set<String> seen, Deque<Future<Parsed>> pending) {
+        for (String iri : imports) {
+            if (seen.add(iri)) {
+                pending.add(read(iri, catalog.resolve(iri), remote));
+            }
+        }
+    }
+
+    private Future<Parsed> read(final String iri, final String location, final RemoteSchemaCache remote) {
+        return OntologyReasoner.loadExecutor().submit(new Callable<Parsed>() {
+            @Override
+            public Parsed call() {
+                int slash = location.lastIndexOf('/');
+                int dot = location.lastIndexOf('.');
+                String extention = dot > slash ? location.substring(dot) : "";
+                byte[] content = OntologyReasoner.fetch(location, extention, remote);
+                byte[] digest = sha256().digest(content);
+                Parsed known = get(location, digest);
+                if (known != null) {
+                    return new Parsed(iri, location, digest, known.model, known.imports, known.triples);
+                }
+                Model model = ModelFactory.createDefaultModel();
+                //without a known extention Jena reads RDF/XML, the usual format of ontologies on the web
+                model.read(new ByteArrayInputStream(content), location, OntologyReasoner.langs.get(extention));
+                Parsed read = new Parsed(iri, location, digest, model, Declared.of(model).imports, model.size());
+                put(read);
+                return read;
+            }
+        });
+    }
+
+    private synchronized Parsed get(String location, byte[] digest) {
+        Parsed known = parsed.get(location);
+        return known != null && Arrays.equals(known.digest, digest) ? known : null;
+    }
+
+    private synchronized void put(Parsed read) {
+        Parsed previous = parsed.put(read.location, read);
+        if (previous != null) {
+            usedBytes -= previous.bytes();
+        }
+        usedBytes += read.bytes();
+        Iterator<Map.Entry<String, Parsed>> it = parsed.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            usedBytes -= it.next().getValue().bytes();
+            it.remove();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The import closure of a schema.
+     */
+    static final class Imports {
+
+        //in the order they were discovered
+        final List<Model> models;
+        //the hex encoded SHA-256 of the IRI, location and contents of every import
+        final String key;
+        final long triples;
+
+        Imports(List<Model> models, String key, long triples) {
+            this.models = models;
+            this.key = key;
+            this.triples = triples;
+        }
+    }
+
+    /**
+     * The ontologies a schema declares (the subjects of its owl:Ontology
+     * statements) and the ones it imports directly.
+     */
+    static final class Declared {
+
+        final Set<String> ontologies;
+        final List<String> imports;
+
+        private Declared(Set<String> ontologies, List<String> imports) {
+            this.ontologies = ontologies;
+            this.imports = imports;
+        }
+
+        static Declared of(Model schema) {
+            Set<String> ontologies = new HashSet<String>(SchemaIndex.subjects(schema, RDF.type, OWL.Ontology));
+            List<String> imports = new ArrayList<String>();
+            for (RDFNode node : schema.listObjectsOfProperty(OWL.imports).toList()) {
+                if (node.isURIResource()) {
+                    imports.add(node.asResource().getURI());
+                }
+            }
+            return new Declared(Collections.unmodifiableSet(ontologies), Collections.unmodifiableList(imports));
+        }
+    }
+
+    /**
+     * An imported ontology, read from a location.
+     */
+    private static final class Parsed {
+
+        final String iri;
+        final String location;
+        final byte[] digest;
+        final Model model;
+        //the ontologies it imports directly
+        final List<String> imports;
+        final long triples;
+
+        Parsed(String iri, String location, byte[] digest, Model model, List<String> imports, long triples) {
+            this.iri = iri;
+            this.location = location;
+            this.digest = digest;
+            this.model = model;
+            this.imports = imports;
+            this.triples = triples;
+        }
+
+        long bytes() {
+            return triples * SchemaCache.BYTES_PER_TRIPLE;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the measurements of one or more reasoners in memory. Durations go to
+ * a histogram per operation with a bucket per power of two nanoseconds, so
+ * recording is a few atomic increments and percentiles are exact to within a
+ * factor of two. {@link #snapshot()} takes a copy that can be exported.
+ */
+public final class InMemoryMetrics implements ReasonerMetrics {
+
+    private static final int BUCKETS = 64;
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<Operation, Histogram>(Operation.class);
+    private final AtomicLong schemas = new AtomicLong();
+    private volatile long lastTriples;
+    private volatile int lastClasses;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    public InMemoryMetrics() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new Histogram());
+        }
+    }
+
+    @Override
+    public void time(Operation operation, long nanos) {
+        histograms.get(operation).record(nanos);
+    }
+
+    @Override
+    public void schemaLoaded(long triples, int classes) {
+        lastTriples = triples;
+        lastClasses = classes;
+        schemas.incrementAndGet();
+    }
+
+    @Override
+    public void cacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).incrementAndGet();
+    }
+
+    /**
+     * Copies the measurements taken so far. Measurements taken while copying
+     * may or may not be included.
+     *
+     * @return the copy
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Operation, MetricsSnapshot.Timer> timers = new EnumMap<Operation, MetricsSnapshot.Timer>(Operation.class);
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            timers.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new MetricsSnapshot(timers, schemas.get(), lastTriples, lastClasses, cacheHits.get(), cacheMisses.get());
+    }
+
+    /**
+     * Forgets all the measurements.
+     */
+    public void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        schemas.set(0);
+        lastTriples = 0;
+        lastClasses = 0;
+        cacheHits.set(0);
+        cacheMisses.set(0);
+    }
+
+    private static final class Histogram {
+
+        //bucket i counts the durations d with 2^(i-1) <= d < 2^i
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+            total.addAndGet(nanos);
+            long previous;
+            while (nanos > (previous = max.get()) && !max.compareAndSet(previous, nanos)) {
+                //retry
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            total.set(0);
+            max.set(0);
+        }
+
+        MetricsSnapshot.Timer snapshot() {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+            long maximum = max.get();
+            return new MetricsSnapshot.Timer(count, total.get(), maximum,
+                    percentile(counts, count, 0.5, maximum),
+                    percentile(counts, count, 0.9, maximum),
+                    percentile(counts, count, 0.99, maximum));
+        }
+
+        /**
+         * The upper bound of the bucket holding the given percentile, capped
+         * by the longest duration.
+         */
+        private static long percentile(long[] counts, long count, double percentile, long maximum) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i >= 63 ? maximum : Math.min(maximum, (1L << i) - 1);
+                }
+            }
+            return maximum;
+        }
+    }
+}
@@ -2,25 +2,24 @@ package isl.reasoner;
 
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
-import com.hp.hpl.jena.ontology.OntModel;
-import com.hp.hpl.jena.ontology.OntModelSpec;
-import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryExecutionFactory;
-import com.hp.hpl.jena.query.QuerySolution;
-import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NullIterator;
 import com.hp.hpl.jena.vocabulary.RDF;
 import com.hp.hpl.jena.vocabulary.RDFS;
 import org.apache.commons.lang3.tuple.Pair;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
 
 /** This class reads a resource containing instances of an ontology and 
  * retrieves their classes, as well as the corresponding instances.
@@ -28,14 +27,94 @@ import java.util.Set;
  * @author Yannis Marketakis (marketak 'at' ics 'dot' forth 'dot' gr)
  */
 public class InstanceFetcher {
-    private OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM );
+    private final InstanceIndex index;
     
     public InstanceFetcher(String fileContents, String extension) throws UnsupportedExtensionException{
-       if(!OntologyReasoner.langs.keySet().contains(extension.toLowerCase())){
+        this(new StringReader(fileContents), extension);
+    }
+    
+    /** Reads the instances from a character stream. The triples are streamed and only the 
+     * rdf:type and rdfs:label ones are kept, indexed by class, so the memory needed depends on 
+     * the number of instances and not on the size of the resource. The reader is not closed.
+     * 
+     * @param reader the contents of the resource
+     * @param extension the extension of the file containing the resources (e.g. .ttl)
+     * @throws UnsupportedExtensionException if the given extension is not supported */
+    public InstanceFetcher(Reader reader, String extension) throws UnsupportedExtensionException{
+        index=new InstanceIndex(false);
+        ModelFactory.createModelForGraph(new TypeAndLabelFilter(index)).read(reader,null,lang(extension));
+        index.freeze();
+    }
+    
+    /** Reads the instances from a byte stream, like {@link #InstanceFetcher(Reader, String)}. 
+     * The stream is not closed.
+     * 
+     * @param in the contents of the resource
+     * @param extension the extension of the file containing the resources (e.g. .ttl)
+     * @throws UnsupportedExtensionException if the given extension is not supported */
+    public InstanceFetcher(InputStream in, String extension) throws UnsupportedExtensionException{
+        this(in, extension, false);
+    }
+    
+    /** Reads the instances from a byte stream, like {@link #InstanceFetcher(InputStream, String)}, 
+     * optionally keeping them off the heap. The URIs and labels are stored once, as UTF-8, and 
+     * the facts as columns of ints; off the heap both are kept in direct buffers, so only a small 
+     * index of about 20 bytes per URI or label stays on the heap. 
+     * 
+     * @param in the contents of the resource
+     * @param extension the extension of the file containing the resources (e.g. .ttl)
+     * @param offHeap true to keep the data in direct (off-heap) buffers
+     * @throws UnsupportedExtensionException if the given extension is not supported */
+    public InstanceFetcher(InputStream in, String extension, boolean offHeap) throws UnsupportedExtensionException{
+        index=new InstanceIndex(offHeap);
+        ModelFactory.createModelForGraph(new TypeAndLabelFilter(index)).read(in,null,lang(extension));
+        index.freeze();
+    }
+    
+    /** Reads the instances from a file, like {@link #InstanceFetcher(Reader, String)}. 
+     * The syntax is deduced from the extension of the file name.
+     * 
+     * @param path the file containing the resources
+     * @throws UnsupportedExtensionException if the extension of the file is not supported
+     * @throws IOException if the file cannot be read */
+    public InstanceFetcher(Path path) throws UnsupportedExtensionException, IOException{
+        this(path, false);
+    }
+    
+    /** Reads the instances from a file, like {@link #InstanceFetcher(Path)}, optionally keeping 
+     * them off the heap like {@link #InstanceFetcher(InputStream, String, boolean)}. 
+     * 
+     * @param path the file containing the resources
+     * @param offHeap true to keep the data in direct (off-heap) buffers
+     * @throws UnsupportedExtensionException if the extension of the file is not supported
+     * @throws IOException if the file cannot be read */
+    public InstanceFetcher(Path path, boolean offHeap) throws UnsupportedExtensionException, IOException{
+        index=new InstanceIndex(offHeap);
+        String fileName=path.getFileName().toString();
+        String extension=(fileName.lastIndexOf(".")<0)?fileName:fileName.substring(fileName.lastIndexOf("."));
+        String lang=lang(extension);
+        InputStream in=new BufferedInputStream(Files.newInputStream(path));
+        try{
+            ModelFactory.createModelForGraph(new TypeAndLabelFilter(index)).read(in,null,lang);
+        }finally{
+            in.close();
+        }
+        index.freeze();
+    }
+    
+    private static String lang(String extension) throws UnsupportedExtensionException{
+        if(!OntologyReasoner.langs.keySet().contains(extension.toLowerCase())){
             throw new UnsupportedExtensionException("The given file extension ("+extension+") is not supported. "
                                                    +"The list of accepted file extensions is "+OntologyReasoner.langs.keySet());
         }
-        model.read(new StringReader(fileContents),null,OntologyReasoner.langs.get(extension.toLowerCase()));
+        return OntologyReasoner.langs.get(extension.toLowerCase());
+    }
+    
+    /** Returns the estimated memory taken by the stored instances, on or off the heap.
+     * 
+     * @return the size of the strings and columns in bytes */
+    public long getStoredBytes(){
+        return index.bytes();
     }
     
     /** Retrieves the URIs of the classes that are in the given instance resource. 
@@ -45,18 +124,7 @@ public class InstanceFetcher {
      * 
      * @return the URIs of the classes of the given resource */ 
     public Collection<String> getClassUris(){
-        Set<String> retCollection=new HashSet<>();
-        String selectQuery="SELECT DISTINCT ?class "
-                          +"WHERE { "
-                            +"?subject <"+RDF.type+"> ?class "
-                          +"}";
-        QueryExecution qe = QueryExecutionFactory.create(selectQuery, this.model);
-        ResultSet results = qe.execSelect();
-        while (results.hasNext()) {
-            QuerySolution result = results.next();
-            retCollection.add(result.get("class").toString());
-        }
-        return retCollection;
+        return index.getClassUris();
     }
     
     /** Given the URI of a class, it retrieves the URIs of its instances.
@@ -68,22 +136,7 @@ public class InstanceFetcher {
      * @param classUri the URI of the class
      * @return the URIs and the corresponding labels (if they exist) of the instances of the given class */
     public Collection<Pair<String,String>> getInstanceUris(String classUri){
-        Set<Pair<String,String>> retCollection=new HashSet<>();
-        String selectQuery="SELECT DISTINCT ?subject ?label "
-                          +"WHERE { "
-                            +"?subject <"+RDF.type+"> <"+classUri+">. "
-                            +"OPTIONAL{ "
-                                +"?subject <"+RDFS.label+"> ?label. " 
-                            +"} "
-                          +"}";
-        QueryExecution qe = QueryExecutionFactory.create(selectQuery, this.model);
-        ResultSet results = qe.execSelect();
-        while (results.hasNext()) {
-            QuerySolution result = results.next();
-            retCollection.add(Pair.of(result.get("subject").toString(),
-                              (result.get("label")!=null)?result.get("label").toString():""));
-        }
-        return retCollection;
+        return index.getInstanceUris(classUri);
     }
     
     /** The method retrieves the URIs of the classes that appear in the model
@@ -98,33 +151,37 @@ public class InstanceFetcher {
      * @return a multimap with class and instance URIs [key: class Uri, values: instances URIs and their corresponding labels] */
     public Multimap<String,Pair<String,String>> getClassAndInstanceUris(){
         Multimap<String,Pair<String,String>> retMap=TreeMultimap.create();
-        String selectQuery="SELECT DISTINCT ?subject ?object ?label "
-                          +"WHERE { "
-                            +"?subject <"+RDF.type+"> ?object. "
-                            +"OPTIONAL{ "
-                                +"?subject <"+RDFS.label+"> ?label. "
-                            +"} "
-                          +"}";
-        QueryExecution qe = QueryExecutionFactory.create(selectQuery, this.model);
-        ResultSet results = qe.execSelect();
-        while (results.hasNext()) {
-            QuerySolution result = results.next();
-            retMap.put(result.get("object").toString(),
-                       Pair.of(result.get("subject").toString(),
-                              (result.get("label")!=null)?result.get("label").toString():""));
-        }
+        index.putAll(retMap);
         return retMap;
     }
     
     
-    public static void main(String[] args) throws FileNotFoundException, IOException, UnsupportedExtensionException{
-        String contents="";
-        String line="";
-        BufferedReader br=new BufferedReader(new FileReader(new File("sample.ttl")));
-        while((line=br.readLine())!=null){
-            contents+=line+"\n";
+    /** A graph that the parsers write into, adding the rdf:type and rdfs:label triples 
+     * to the index and dropping everything else as soon as it is parsed. */
+    private static class TypeAndLabelFilter extends GraphBase{
+        private final InstanceIndex index;
+        
+        TypeAndLabelFilter(InstanceIndex index){
+            this.index=index;
+        }
+        
+        @Override
+        public void performAdd(Triple t){
+            if(t.getPredicate().equals(RDF.type.asNode())){
+                index.addType(t.getSubject(),t.getObject());
+            }else if(t.getPredicate().equals(RDFS.label.asNode())){
+                index.addLabel(t.getSubject(),t.getObject());
+            }
         }
-        InstanceFetcher instance=new InstanceFetcher(contents, ".ttl");
+        
+        @Override
+        protected ExtendedIterator<Triple> graphBaseFind(TripleMatch m){
+            return NullIterator.instance();
+        }
+    }
+    
+    public static void main(String[] args) throws IOException, UnsupportedExtensionException{
+        InstanceFetcher instance=new InstanceFetcher(Paths.get("sample.ttl"));
         for(String classUri : instance.getClassUris()){
             System.out.println(classUri);
             for(Pair<String,String> instanceUri : instance.getInstanceUris(classUri)){
@@ -0,0 +1,264 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.google.common.collect.Multimap;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.shared.PrefixMapping;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * The classes of a resource with their instances and the labels of the
+ * instances, built while the resource is parsed. Every URI, blank node and
+ * label is stored once, as UTF-8, in a {@link TermStore} and the structures
+ * refer to it by its position: the rdf:type and rdfs:label facts are appended
+ * as pairs of ints, and {@link #freeze()} turns them into two sorted
+ * adjacency columns (class to instances, instance to labels), so the
+ * instances of a class are found with one hash lookup. Off the heap, both the
+ * strings and the columns are kept in direct buffers.
+ */
+final class InstanceIndex {
+
+    private final boolean offHeap;
+    private final TermStore terms;
+
+    //the facts, as they are parsed: (instance, class) and (label, instance) pairs
+    private IntList types = new IntList();
+    private IntList labels = new IntList();
+
+    //the facts by class and by instance, once frozen: the instances of the
+    //class with id c are instances[instanceStart[c] .. instanceStart[c+1])
+    private int[] classes;
+    private IntBuffer instanceStart;
+    private IntBuffer instances;
+    private IntBuffer labelStart;
+    private IntBuffer labelValues;
+
+    /**
+     * @param offHeap true to keep the strings and the columns in direct
+     * buffers
+     */
+    InstanceIndex(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.terms = new TermStore(offHeap);
+    }
+
+    /**
+     * Records that an instance belongs to a class.
+     */
+    void addType(Node instance, Node cls) {
+        types.add(id(instance));
+        types.add(id(cls));
+    }
+
+    /**
+     * Records a label of an instance.
+     */
+    void addLabel(Node instance, Node label) {
+        labels.add(id(label));
+        labels.add(id(instance));
+    }
+
+    private int id(Node node) {
+        //the strings are the ones the SPARQL results used to give
+        String term = node.isLiteral() ? node.toString(PrefixMapping.Standard, false) : node.toString();
+        return terms.intern(term);
+    }
+
+    /**
+     * Builds the adjacency arrays once everything has been parsed. Duplicate
+     * facts are dropped.
+     */
+    void freeze() {
+        terms.trim();
+        int size = terms.size();
+        int[] instanceStart = new int[size + 1];
+        int[] instances = group(types, instanceStart, size);
+        types = null;
+        IntList withInstances = new IntList();
+        for (int c = 0; c < size; c++) {
+            if (instanceStart[c] < instanceStart[c + 1]) {
+                withInstances.add(c);
+            }
+        }
+        classes = withInstances.toArray();
+        this.instanceStart = column(instanceStart);
+        this.instances = column(instances);
+
+        int[] labelStart = new int[size + 1];
+        int[] labelValues = group(labels, labelStart, size);
+        labels = null;
+        this.labelStart = column(labelStart);
+        this.labelValues = column(labelValues);
+    }
+
+    /**
+     * Wraps an array, or copies it off the heap.
+     */
+    private IntBuffer column(int[] values) {
+        if (!offHeap) {
+            return IntBuffer.wrap(values);
+        }
+        IntBuffer column = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        column.put(values);
+        column.clear();
+        return column;
+    }
+
+    /**
+     * @return the estimated bytes taken by the strings and the columns
+     */
+    long bytes() {
+        return terms.bytes() + 4L * (classes.length + instanceStart.capacity() + instances.capacity()
+                + labelStart.capacity() + labelValues.capacity());
+    }
+
+    /**
+     * Groups (value, key) pairs by key. On return start[k] is where the
+     * sorted, distinct values of key k begin in the returned array.
+     */
+    private static int[] group(IntList pairs, int[] start, int size) {
+        int n = pairs.size() / 2;
+        int[] counts = new int[size + 1];
+        for (int i = 0; i < n; i++) {
+            counts[pairs.get(2 * i + 1) + 1]++;
+        }
+        for (int k = 0; k < size; k++) {
+            counts[k + 1] += counts[k];
+        }
+        int[] grouped = new int[n];
+        int[] next = Arrays.copyOf(counts, size);
+        for (int i = 0; i < n; i++) {
+            grouped[next[pairs.get(2 * i + 1)]++] = pairs.get(2 * i);
+        }
+        //sort every group and squeeze out the duplicates
+        int out = 0;
+        for (int k = 0; k < size; k++) {
+            int from = counts[k];
+            int to = counts[k + 1];
+            Arrays.sort(grouped, from, to);
+            start[k] = out;
+            for (int i = from; i < to; i++) {
+                if (out == start[k] || grouped[out - 1] != grouped[i]) {
+                    grouped[out++] = grouped[i];
+                }
+            }
+        }
+        start[size] = out;
+        return Arrays.copyOf(grouped, out);
+    }
+
+    /**
+     * @return the URIs of the classes that have instances
+     */
+    Collection<String> getClassUris() {
+        List<String> uris = new ArrayList<String>(classes.length);
+        for (int c : classes) {
+            uris.add(terms.get(c));
+        }
+        return uris;
+    }
+
+    /**
+     * @param classUri the URI of a class
+     * @return the instances of the class, paired with each of their labels
+     * (or with "" if they have none)
+     */
+    Collection<Pair<String, String>> getInstanceUris(String classUri) {
+        int c = terms.id(classUri);
+        if (c < 0) {
+            return Collections.emptyList();
+        }
+        List<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>(instanceStart.get(c + 1) - instanceStart.get(c));
+        addInstances(c, pairs);
+        return pairs;
+    }
+
+    /**
+     * Adds every class with its instances (paired with their labels) to a
+     * multimap.
+     */
+    void putAll(Multimap<String, Pair<String, String>> map) {
+        List<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+        for (int c : classes) {
+            pairs.clear();
+            addInstances(c, pairs);
+            map.putAll(terms.get(c), pairs);
+        }
+    }
+
+    private void addInstances(int c, List<Pair<String, String>> pairs) {
+        for (int i = instanceStart.get(c); i < instanceStart.get(c + 1); i++) {
+            int instance = instances.get(i);
+            String uri = terms.get(instance);
+            int from = labelStart.get(instance);
+            int to = labelStart.get(instance + 1);
+            if (from == to) {
+                pairs.add(Pair.of(uri, ""));
+            }
+            for (int l = from; l < to; l++) {
+                pairs.add(Pair.of(uri, terms.get(labelValues.get(l))));
+            }
+        }
+    }
+
+    /**
+     * A growable array of ints.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A copy of the measurements of an {@link InMemoryMetrics}, which can be
+ * exported as JSON.
+ */
+public final class MetricsSnapshot {
+
+    private final Map<ReasonerMetrics.Operation, Timer> timers;
+    private final long schemasLoaded;
+    private final long lastTriples;
+    private final int lastClasses;
+    private final long cacheHits;
+    private final long cacheMisses;
+
+    MetricsSnapshot(Map<ReasonerMetrics.Operation, Timer> timers, long schemasLoaded, long lastTriples,
+            int lastClasses, long cacheHits, long cacheMisses) {
+        this.timers = Collections.unmodifiableMap(timers);
+        this.schemasLoaded = schemasLoaded;
+        this.lastTriples = lastTriples;
+        this.lastClasses = lastClasses;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+    }
+
+    /**
+     * @return the durations of every operation
+     */
+    public Map<ReasonerMetrics.Operation, Timer> getTimers() {
+        return timers;
+    }
+
+    public Timer getTimer(ReasonerMetrics.Operation operation) {
+        return timers.get(operation);
+    }
+
+    /**
+     * @return how many schemas were classified (not taken from the cache)
+     */
+    public long getSchemasLoaded() {
+        return schemasLoaded;
+    }
+
+    /**
+     * @return the statements of the last classified schema
+     */
+    public long getLastTriples() {
+        return lastTriples;
+    }
+
+    /**
+     * @return the classes known after the last classified schema
+     */
+    public int getLastClasses() {
+        return lastClasses;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return the snapshot as a JSON object, durations in nanoseconds
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"timers\":{");
+        boolean first = true;
+        for (Map.Entry<ReasonerMetrics.Operation, Timer> entry : timers.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            Timer timer = entry.getValue();
+            json.append('"').append(entry.getKey()).append("\":{\"count\":").append(timer.count)
+                    .append(",\"totalNanos\":").append(timer.totalNanos)
+                    .append(",\"maxNanos\":").append(timer.maxNanos)
+                    .append(",\"p50Nanos\":").append(timer.p50Nanos)
+                    .append(",\"p90Nanos\":").append(timer.p90Nanos)
+                    .append(",\"p99Nanos\":").append(timer.p99Nanos).append('}');
+        }
+        json.append("},\"schemasLoaded\":").append(schemasLoaded)
+                .append(",\"lastTriples\":").append(lastTriples)
+                .append(",\"lastClasses\":").append(lastClasses)
+                .append(",\"cacheHits\":").append(cacheHits)
+                .append(",\"cacheMisses\":").append(cacheMisses).append('}');
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * The durations of one operation. The percentiles are the upper bounds of
+     * the power of two buckets they fall in.
+     */
+    public static final class Timer {
+
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+
+        Timer(long count, long totalNanos, long maxNanos, long p50Nanos, long p90Nanos, long p99Nanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Factory;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.shared.SyntaxError;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a line based (N-Triples or N-Quads) schema file in parallel. The file
+ * is split on line boundaries into chunks that are memory-mapped, hashed and
+ * parsed independently on the load executor, at most one chunk per core at a
+ * time; the triples of every chunk are added, in order, to a single graph as
+ * soon as the chunk is parsed. The graph names of N-Quads are
+ * dropped, a schema is one graph.
+ *
+ * Blank node labels are scoped to the file, like Jena's readers do: the same
+ * label in two chunks is the same node.
+ */
+final class NTriplesLoader implements Closeable {
+
+    /**
+     * The size of a chunk; fixed, so the key of a file does not depend on
+     * the number of cores.
+     */
+    static final int CHUNK_BYTES = 8 * 1024 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    private final String extention;
+    private final boolean quads;
+    //the start of every chunk, and the length of the file last
+    private final long[] bounds;
+
+    /**
+     * Opens a file and splits it into chunks.
+     *
+     * @param file an N-Triples or N-Quads file
+     * @param extention its extention, .nt or .nq
+     */
+    NTriplesLoader(File file, String extention) throws FileNotFoundException {
+        this.file = new RandomAccessFile(file, "r");
+        this.extention = extention;
+        this.quads = ".nq".equals(extention);
+        try {
+            bounds = split(this.file);
+        } catch (IOException e) {
+            close();
+            throw new com.hp.hpl.jena.shared.JenaException("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tells whether a schema with this extention is read by this class.
+     */
+    static boolean accepts(String extention) {
+        return ".nt".equals(extention) || ".nq".equals(extention);
+    }
+
+    private static long[] split(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        List<Long> starts = new ArrayList<Long>();
+        long start = 0;
+        byte[] buffer = new byte[4096];
+        while (start < length) {
+            starts.add(start);
+            long end = start + CHUNK_BYTES;
+            if (end >= length) {
+                break;
+            }
+            //move the end after the next line break
+            boolean found = false;
+            while (!found && end < length) {
+                file.seek(end);
+                int read = file.read(buffer, 0, (int) Math.min(buffer.length, length - end));
+                for (int i = 0; i < read && !found; i++) {
+                    if (buffer[i] == '\n') {
+                        end += i + 1;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    end += read;
+                }
+            }
+            start = end;
+        }
+        long[] bounds = new long[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            bounds[i] = starts.get(i);
+        }
+        bounds[starts.size()] = length;
+        return bounds;
+    }
+
+    /**
+     * @return the number of chunks
+     */
+    int chunks() {
+        return bounds.length - 1;
+    }
+
+    private ByteBuffer map(int chunk) throws IOException {
+        return file.getChannel().map(FileChannel.MapMode.READ_ONLY, bounds[chunk], bounds[chunk + 1] - bounds[chunk]);
+    }
+
+    /**
+     * Hashes the chunks in parallel.
+     *
+     * @return the SHA-256 of the SHA-256 of every chunk
+     */
+    byte[] digest(ExecutorService executor) {
+        final MessageDigest digest = sha256();
+        run(executor, new Task<byte[]>() {
+            @Override
+            public byte[] call(int chunk) throws IOException {
+                MessageDigest part = sha256();
+                part.update(map(chunk));
+                return part.digest();
+            }
+
+            @Override
+            public void done(byte[] part) {
+                digest.update(part);
+            }
+        });
+        return digest.digest();
+    }
+
+    /**
+     * Parses the chunks in parallel into one graph.
+     *
+     * @return the graph of the file
+     * @throws SyntaxError if a line is not a triple (or a quad)
+     */
+    Graph parse(ExecutorService executor) {
+        final String scope = UUID.randomUUID().toString();
+        final Graph graph = Factory.createGraphMem();
+        run(executor, new Task<List<Triple>>() {
+            @Override
+            public List<Triple> call(int chunk) throws IOException {
+                ByteBuffer buffer = map(chunk);
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return new LineParser(bytes, scope).parse();
+            }
+
+            @Override
+            public void done(List<Triple> triples) {
+                for (Triple triple : triples) {
+                    graph.add(triple);
+                }
+            }
+        });
+        return graph;
+    }
+
+    /**
+     * The work done on every chunk: call runs on the executor, done on the
+     * calling thread, in the order of the chunks.
+     */
+    private interface Task<T> {
+
+        T call(int chunk) throws IOException;
+
+        void done(T result);
+    }
+
+    /**
+     * Runs a task on every chunk with at most one chunk per core in flight,
+     * so the results held in memory do not grow with the file (and a cached
+     * executor does not start a thread per chunk). The result of a chunk is
+     * handed to done as soon as it and the chunks before it are finished.
+     */
+    private <T> void run(ExecutorService executor, final Task<T> task) {
+        int window = Math.max(1, Runtime.getRuntime().availableProcessors());
+        Deque<Future<T>> parts = new ArrayDeque<Future<T>>();
+        int next = 0;
+        try {
+            while (next < chunks() || !parts.isEmpty()) {
+                while (next < chunks() && parts.size() < window) {
+                    final int chunk = next++;
+                    parts.add(executor.submit(new Callable<T>() {
+                        @Override
+                        public T call() throws IOException {
+                            return task.call(chunk);
+                        }
+                    }));
+                }
+                task.done(get(parts.peek()));
+                parts.poll();
+            }
+        } finally {
+            for (Future<T> part : parts) {
+                part.cancel(false);
+            }
+        }
+    }
+
+    private <T> T get(Future<T> part) {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new com.hp.hpl.jena.shared.JenaException("Interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new com.hp.hpl.jena.shared.JenaException("Error: " + cause.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            //nothing was written
+        }
+    }
+
+    /**
+     * Parses the lines of a chunk.
+     */
+    private final class LineParser {
+
+        private final byte[] bytes;
+        private final String scope;
+        private final List<Triple> triples = new ArrayList<Triple>();
+        private int pos;
+        private int lineStart;
+
+        LineParser(byte[] bytes, String scope) {
+            this.bytes = bytes;
+            this.scope = scope;
+        }
+
+        List<Triple> parse() {
+            while (pos < bytes.length) {
+                lineStart = pos;
+                skipSpaces();
+                if (atLineEnd()) {
+                    skipLine();
+                    continue;
+                }
+                Node subject = resourceTerm();
+                skipSpaces();
+                Node predicate = iriTerm();
+                skipSpaces();
+                Node object = objectTerm();
+                skipSpaces();
+                if (quads && pos < bytes.length && bytes[pos] != '.') {
+                    //the graph name, dropped
+                    resourceTerm();
+                    skipSpaces();
+                }
+                expect('.');
+                skipSpaces();
+                if (!atLineEnd()) {
+                    throw error();
+                }
+                skipLine();
+                triples.add(Triple.create(subject, predicate, object));
+            }
+            return triples;
+        }
+
+        private boolean atLineEnd() {
+            return pos >= bytes.length || bytes[pos] == '\n' || bytes[pos] == '\r' || bytes[pos] == '#';
+        }
+
+        private void skipLine() {
+            while (pos < bytes.length && bytes[pos] != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+
+        private void skipSpaces() {
+            while (pos < bytes.length && (bytes[pos] == ' ' || bytes[pos] == '\t')) {
+                pos++;
+            }
+        }
+
+        private void expect(char c) {
+            if (pos >= bytes.length || bytes[pos] != c) {
+                throw error();
+            }
+            pos++;
+        }
+
+        private Node resourceTerm() {
+            if (pos < bytes.length && bytes[pos] == '_') {
+                return blankTerm();
+            }
+            return iriTerm();
+        }
+
+        private Node objectTerm() {
+            if (pos < bytes.length && bytes[pos] == '"') {
+                return literalTerm();
+            }
+            return resourceTerm();
+        }
+
+        private Node iriTerm() {
+            return Node.createURI(iri());
+        }
+
+        private String iri() {
+            expect('<');
+            int start = pos;
+            while (pos < bytes.length && bytes[pos] != '>' && bytes[pos] != '\n') {
+                pos++;
+            }
+            String iri = text(start, pos);
+            expect('>');
+            return iri;
+        }
+
+        private Node blankTerm() {
+            expect('_');
+            expect(':');
+            int start = pos;
+            while (pos < bytes.length && bytes[pos] != ' ' && bytes[pos] != '\t'
+                    && bytes[pos] != '\n' && bytes[pos] != '\r') {
+                pos++;
+            }
+            int end = pos;
+            if (end > start && bytes[end - 1] == '.' && atLineEnd()) {
+                //the label is followed by the final dot without a space
+                end--;
+                pos--;
+            }
+            if (end == start) {
+                throw error();
+            }
+            return Node.createAnon(new AnonId(scope + ":" + text(start, end)));
+        }
+
+        private Node literalTerm() {
+            expect('"');
+            int start = pos;
+            while (pos < bytes.length && bytes[pos] != '"' && bytes[pos] != '\n') {
+                if (bytes[pos] == '\\') {
+                    pos++;
+                }
+                pos++;
+            }
+            String lexical = text(start, pos);
+            expect('"');
+            if (pos < bytes.length && bytes[pos] == '@') {
+                pos++;
+                int langStart = pos;
+                while (pos < bytes.length && (Character.isLetterOrDigit(bytes[pos]) || bytes[pos] == '-')) {
+                    pos++;
+                }
+                return Node.createLiteral(lexical, text(langStart, pos), null);
+            }
+            if (pos + 1 < bytes.length && bytes[pos] == '^' && bytes[pos + 1] == '^') {
+                pos += 2;
+                return Node.createLiteral(lexical, null, TypeMapper.getInstance().getSafeTypeByName(iri()));
+            }
+            return Node.createLiteral(lexical);
+        }
+
+        /**
+         * Decodes a term, resolving its escapes.
+         */
+        private String text(int start, int end) {
+            String text = new String(bytes, start, end - start, UTF8);
+            return text.indexOf('\\') < 0 ? text : unescape(text);
+        }
+
+        private String unescape(String text) {
+            StringBuilder out = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c != '\\' || i + 1 == text.length()) {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = text.charAt(++i);
+                switch (escaped) {
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                    case 'U':
+                        int digits = escaped == 'u' ? 4 : 8;
+                        if (i + digits >= text.length()) {
+                            throw error();
+                        }
+                        try {
+                            out.appendCodePoint(Integer.parseInt(text.substring(i + 1, i + 1 + digits), 16));
+                        } catch (IllegalArgumentException e) {
+                            throw error();
+                        }
+                        i += digits;
+                        break;
+                    default:
+                        //\" \' \\ and anything else stand for themselves
+                        out.append(escaped);
+                }
+            }
+            return out.toString();
+        }
+
+        private SyntaxError error() {
+            int end = lineStart;
+            while (end < bytes.length && bytes[end] != '\n' && end - lineStart < 200) {
+                end++;
+            }
+            return new SyntaxError("Wrong file format for extention: " + extention
+                    + ", at \"" + new String(bytes, lineStart, end - lineStart, UTF8).trim() + "\"");
+        }
+    }
+}
@@ -1,22 +1,46 @@
 package isl.reasoner;
 
-import com.hp.hpl.jena.ontology.OntModel;
-import com.hp.hpl.jena.ontology.OntModelSpec;
-import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NullIterator;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  *  This class is responsible for identifying if a given resource contains schema resources 
  * (e.g. definitions of classes, properties, etc.).
  * Technically, it checks if a given resource contains instantiations of a class (found in rdf, rdfs, owl) 
  * or property. 
+ * The resource is checked while it is parsed: parsing stops at the first triple that refers to 
+ * one of these classes, and nothing is kept between calls.
  *
  * @author Yannis Marketakis (marketak 'at' ics 'dot' forth 'dot' gr)
  */
 public class OntologyIdentifier {
-    private OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM );
+    private static final Set<Node> SCHEMA_TERMS=new HashSet<>();
+    
+    static{
+        for(String namespace : new String[]{"http://www.w3.org/1999/02/22-rdf-syntax-ns#",
+                                            "http://www.w3.org/2000/01/rdf-schema#",
+                                            "http://www.w3.org/2002/07/owl#"}){
+            for(String term : new String[]{"Class","Property"}){
+                SCHEMA_TERMS.add(Node.createURI(namespace+term));
+                SCHEMA_TERMS.add(Node.createURI(namespace.replace("http:","https:")+term));
+            }
+        }
+    }
     
     /** Checks if the given resource contains schema-related elements (e.g. definition of classes and properties
      * w.r.t. RDF, RDFS, and OWL). Apart from the actual contents, the extension of the file that contained them is
@@ -30,29 +54,107 @@ public class OntologyIdentifier {
      * @return true if the resource contains schema elements, otherwise false
      * @throws UnsupportedExtensionException if the given extension is not supported */ 
     public boolean isSchema(String fileContents, String extension) throws UnsupportedExtensionException{ 
+        return isSchema(new StringReader(fileContents), extension);
+    }
+    
+    /** Checks if the given resource contains schema-related elements, like {@link #isSchema(String, String)}, 
+     * reading it from a character stream. The reader is not closed.
+     * 
+     * @param reader the contents of the resource to be checked
+     * @param extension the extension of the file containing the resources
+     * @return true if the resource contains schema elements, otherwise false
+     * @throws UnsupportedExtensionException if the given extension is not supported */ 
+    public boolean isSchema(Reader reader, String extension) throws UnsupportedExtensionException{
+        String lang=lang(extension);
+        try{
+            detector().read(reader,null,lang);
+        }catch(RuntimeException ex){
+            return found(ex);
+        }
+        return false;
+    }
+    
+    /** Checks if the given resource contains schema-related elements, like {@link #isSchema(String, String)}, 
+     * reading it from a byte stream. The stream is not closed.
+     * 
+     * @param in the contents of the resource to be checked
+     * @param extension the extension of the file containing the resources
+     * @return true if the resource contains schema elements, otherwise false
+     * @throws UnsupportedExtensionException if the given extension is not supported */ 
+    public boolean isSchema(InputStream in, String extension) throws UnsupportedExtensionException{
+        String lang=lang(extension);
+        try{
+            detector().read(in,null,lang);
+        }catch(RuntimeException ex){
+            return found(ex);
+        }
+        return false;
+    }
+    
+    /** Checks if the given file contains schema-related elements, like {@link #isSchema(String, String)}. 
+     * The syntax is deduced from the extension of the file name.
+     * 
+     * @param path the file to be checked
+     * @return true if the resource contains schema elements, otherwise false
+     * @throws UnsupportedExtensionException if the extension of the file is not supported
+     * @throws IOException if the file cannot be read */ 
+    public boolean isSchema(Path path) throws UnsupportedExtensionException, IOException{
+        String fileName=path.getFileName().toString();
+        String extension=(fileName.lastIndexOf(".")<0)?fileName:fileName.substring(fileName.lastIndexOf("."));
+        String lang=lang(extension);
+        InputStream in=new BufferedInputStream(Files.newInputStream(path));
+        try{
+            detector().read(in,null,lang);
+        }catch(RuntimeException ex){
+            return found(ex);
+        }finally{
+            in.close();
+        }
+        return false;
+    }
+    
+    private static String lang(String extension) throws UnsupportedExtensionException{
         if(!OntologyReasoner.langs.keySet().contains(extension.toLowerCase())){
             throw new UnsupportedExtensionException("The given file extension ("+extension+") is not supported. "
                                                    +"The list of accepted file extensions is "+OntologyReasoner.langs.keySet());
         }
-        model.read(new StringReader(fileContents),null,OntologyReasoner.langs.get(extension.toLowerCase()));
-         String query = "ASK "
-                + "WHERE { "
-                + "?s ?p ?type."
-                 + "FILTER("
-                 + "?type=<https://www.w3.org/1999/02/22-rdf-syntax-ns#Class> || "
-                 + "?type=<http://www.w3.org/1999/02/22-rdf-syntax-ns#Class> || "
-                 + "?type=<https://www.w3.org/2000/01/rdf-schema#Class> ||  "
-                 + "?type=<http://www.w3.org/2000/01/rdf-schema#Class> || "
-                 + "?type=<http://www.w3.org/2002/07/owl#Class> ||  "
-                 + "?type=<https://www.w3.org/2002/07/owl#Class> || "
-                 + "?type=<https://www.w3.org/1999/02/22-rdf-syntax-ns#Property> || "
-                 + "?type=<http://www.w3.org/1999/02/22-rdf-syntax-ns#Property> || "
-                 + "?type=<https://www.w3.org/2000/01/rdf-schema#Property> ||  "
-                 + "?type=<http://www.w3.org/2000/01/rdf-schema#Property> || "
-                 + "?type=<http://www.w3.org/2002/07/owl#Property> ||  "
-                 + "?type=<https://www.w3.org/2002/07/owl#Property>) "
-                + "}";
-        QueryExecution qe = QueryExecutionFactory.create(query, model);
-        return qe.execAsk();
+        return OntologyReasoner.langs.get(extension.toLowerCase());
+    }
+    
+    private static Model detector(){
+        return ModelFactory.createModelForGraph(new SchemaDetector());
+    }
+    
+    /** Tells the early exit of the parser from parse errors, 
+     * which some parsers wrap in their own exceptions. */
+    private static boolean found(RuntimeException ex){
+        for(Throwable cause=ex; cause!=null; cause=cause.getCause()){
+            if(cause instanceof SchemaFound){
+                return true;
+            }
+        }
+        throw ex;
+    }
+    
+    /** A graph that the parsers write into, that keeps nothing and stops the parser 
+     * (by throwing SchemaFound) at the first triple with a schema class or property as its object. */
+    private static class SchemaDetector extends GraphBase{
+        @Override
+        public void performAdd(Triple t){
+            if(SCHEMA_TERMS.contains(t.getObject())){
+                throw new SchemaFound();
+            }
+        }
+        
+        @Override
+        protected ExtendedIterator<Triple> graphBaseFind(TripleMatch m){
+            return NullIterator.instance();
+        }
+    }
+    
+    private static class SchemaFound extends RuntimeException{
+        SchemaFound(){
+            super("schema found",null,false,false);
+        }
     }
 }
@@ -26,49 +26,113 @@
  */
 package isl.reasoner;
 
-import com.hp.hpl.jena.ontology.OntClass;
+import com.hp.hpl.jena.ontology.OntDocumentManager;
 import com.hp.hpl.jena.ontology.OntModel;
-import com.hp.hpl.jena.ontology.OntProperty;
-import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.ontology.OntModelSpec;
 import com.hp.hpl.jena.query.QueryParseException;
-import com.hp.hpl.jena.query.QuerySolution;
-import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
-import com.hp.hpl.jena.rdf.model.Property;
-import com.hp.hpl.jena.rdf.model.RDFNode;
-import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.hp.hpl.jena.util.FileManager;
-import com.hp.hpl.jena.util.iterator.ExtendedIterator;
-import com.hp.hpl.jena.vocabulary.RDFS;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
-import org.apache.log4j.Logger;
-import org.mindswap.pellet.KnowledgeBase;
 import org.mindswap.pellet.jena.PelletInfGraph;
 import org.mindswap.pellet.jena.PelletReasonerFactory;
 
 /**
+ * Loads schemas and answers which classes, properties and objects are valid
+ * for them.
+ *
+ * An instance can be shared between threads. The query methods never touch
+ * the (Pellet) model; they read an immutable {@link SchemaIndex} snapshot and
+ * therefore need no locking. Loading a schema is serialized, builds the new
+ * snapshot aside and publishes it with a single volatile write, so a reader
+ * sees either the old or the new schema, never a half-loaded one.
  *
  * @author konsolak
  */
-public class OntologyReasoner {
+public class OntologyReasoner implements SchemaQueries {
 
+    //guarded by this, only the initiateModel methods read or replace it
     OntModel modelAll = ModelFactory.createOntologyModel(
             PelletReasonerFactory.THE_SPEC, null);
 
+    //guarded by this, the cache key of the schemas loaded so far (null if none)
+    private String modelKey;
+
+    //guarded by this, the schemas loaded so far (null if none)
+    private SchemaCache.Entry current;
+
+    //guarded by this, the schemas of the snapshot that is loaded (null if none);
+    //they are loaded again only if a query or another schema needs their model
+    private List<SchemaSource> snapshotSources;
+
+    //precomputed answers of the query methods, replaced as a whole every time a model is loaded
+    private volatile SchemaIndex index = SchemaIndex.EMPTY;
+
+    //completes the terms of the published index, replaced with it
+    private volatile TermCompleter completer = new TermCompleter(SchemaIndex.EMPTY,
+            Collections.<String, String>emptyMap());
+
+    //guarded by this
+    private SchemaCache cache = SchemaCache.shared();
+
+    //guarded by this, the background consistency check of the current schemas (null if not asked for)
+    private ConsistencyCheck consistencyCheck;
+
+    //guarded by this, where schemas downloaded over HTTP are kept (null if they are not)
+    private RemoteSchemaCache remoteCache;
+
+    //guarded by this, where owl:imports are resolved (null to let Jena follow them)
+    private ImportCatalog importCatalog;
+
+    //where the measurements go, read without locking by the query methods
+    private volatile ReasonerMetrics metrics = ReasonerMetrics.NOOP;
+
+    //guarded by this, the reasoning applied to the schemas loaded from now on
+    private ReasoningProfile profile = ReasoningProfile.PELLET_DL;
+
+    //serializes the loading and classification done by Pellet, since classified models are shared
+    //between reasoners; the models are queried under the lock of their chain (SchemaCache.Entry.lock)
+    static final Object PELLET_LOCK = new Object();
+
+    //batches smaller than this many lookups per core are answered by the calling thread
+    private static final int BATCH_CHUNK = 2048;
+
+    //shared by all the reasoners, created on the first large batch
+    private static ExecutorService batchExecutor;
+
+    //shared by all the reasoners, created on the first asynchronous load
+    private static ExecutorService loadExecutor;
+
+    //guarded by the class, set once logging was turned off or on
+    private static boolean loggingConfigured;
+
     protected static final HashMap<String, String> langs = new HashMap<String, String>();
 
     static {
@@ -86,6 +150,10 @@ public class OntologyReasoner {
         langs.put(".trix", "TriX");
     }
 
+    public OntologyReasoner() {
+        configureLogging();
+    }
+
     /**
      * Return all properties that can be applied to instances of this class.
      *
@@ -95,273 +163,1061 @@ public class OntologyReasoner {
      * @throws java.lang.Exceptio
      */
     public ArrayList<String> listProperties(String subject) throws java.lang.Exception, InvalidParameterException, NullPointerException {
-        disableLogging();
+        long start = System.nanoTime();
         ArrayList<String> listProps = new ArrayList();
-        if (Character.isWhitespace(subject.charAt(0)) || Character.isWhitespace(subject.charAt(subject.length() - 1))) {
-            throw new InvalidParameterException("The subject has Leading/Trailing Whitespaces: \"" + subject + "\"");
-        } else if (subject == null) {
-            throw new NullPointerException("The subject is null: " + subject);
+        checkUri(subject, "subject");
+        listProps.addAll(index.listProperties(subject));
+        metrics.time(ReasonerMetrics.Operation.LIST_PROPERTIES, System.nanoTime() - start);
+        return listProps;
+    }
+
+    /**
+     * Initiates the ontology and checks the consistency of the model
+     *
+     * @param modelNS
+     * @return true or false according to the consistency of the model
+     */
+    public synchronized boolean initiateModel(String modelNS) {
+        // read the ontology with its imports
 
+        String ext = modelNS.substring(modelNS.lastIndexOf("."));
+        // PelletOptions.FREEZE_BUILTIN_NAMESPACES =true;
+        //     PelletOptions.IGNORE_UNSUPPORTED_AXIOMS =true;
+        SchemaCache.Entry entry = load(download(modelNS, ext), modelNS, ext);
+        return isConsistent(entry);
+    }
+
+    /**
+     * Initiates the ontology and checks the consistency of the model
+     *
+     * @param modelNS
+     * @param extention
+     * @return true or false according to the consistency of the model
+     */
+    public synchronized boolean initiateModelUrl(String modelNS, String extention) {
+        // read the ontology with its imports
+
+        SchemaCache.Entry entry = load(download(modelNS, extention), modelNS, extention);
+        return isConsistent(entry);
+    }
+
+    /**
+     * Initiates the ontology and checks the consistency of the model.
+     * N-Triples (.nt) and N-Quads (.nq) files are memory-mapped and parsed
+     * in chunks on all the cores.
+     *
+     * @param schemaFile
+     *
+     * @return true or false according to the consistency of the model
+     */
+    public synchronized Map<String, String> initiateModel(File schemaFile) throws FileNotFoundException {
+        // read the ontology with its imports
+        String filePath = schemaFile.getPath();
+        String extention = filePath.substring(filePath.lastIndexOf("."));
+
+        if (NTriplesLoader.accepts(extention)) {
+            return new HashMap<String, String>(loadLines(schemaFile, extention).prefixes);
         }
-        //use also query , reasoner ignores direct property if isSubproperyOf is defined
-        String query = "select ?property \n"
-                + "where {\n"
-                + "?property <" + RDFS.domain + "> <" + subject + ">\n"
-                + "}";
+        byte[] content = read(schemaFile);
+        //change listNamespace with getNsPrefixMap to see if it works because listNamespace only return the properties used in
+        //(a) every URI used as a property in the model and (b) those of every URI that appears as the object of an rdf:type statement.
+        SchemaCache.Entry entry = load(content, null, extention);
+        //    KnowledgeBase kb = ((PelletInfGraph) model.getGraph()).getKB();
+        //    boolean consistent = kb.isConsistent();
 
-        QueryExecution qe = QueryExecutionFactory.create(query, modelAll);
-        ResultSet rs = qe.execSelect();
-        while (rs.hasNext()) {
-            QuerySolution s = rs.next();
+        return new HashMap<String, String>(entry.prefixes);
+    }
 
-            String property = s.get("property").toString();
-            listProps.add(property);
+    /**
+     * Initiates the ontology like {@link #initiateModel(File)}, keeping the
+     * result of its classification in a snapshot file. When the snapshot is
+     * up to date with the contents of the schema file, the reasoning profile
+     * and the mapping of the import catalog, the schema is neither parsed
+     * nor classified: everything is read from the snapshot, and the file is
+     * read again only if a query or another schema needs its model. Otherwise
+     * (missing, corrupted, written by another version or for other contents)
+     * the schema is loaded normally and the snapshot is rebuilt.
+     *
+     * A snapshot describes a schema on its own, so it is only used when this
+     * is the first schema loaded.
+     *
+     * @param schemaFile
+     * @param snapshotFile the file where the snapshot is kept
+     * @return the namespace prefixes of the schema
+     * @throws java.io.FileNotFoundException
+     */
+    public synchronized Map<String, String> initiateModel(File schemaFile, File snapshotFile) throws FileNotFoundException {
+        String filePath = schemaFile.getPath();
+        String extention = filePath.substring(filePath.lastIndexOf("."));
+
+        if (current != null) {
+            return initiateModel(schemaFile);
+        }
+        boolean lines = NTriplesLoader.accepts(extention);
+        byte[] content = lines ? null : read(schemaFile);
+        String key = snapshotKey(schemaFile, content, extention);
+        SchemaSnapshot snapshot;
+        try {
+            snapshot = SchemaSnapshot.read(snapshotFile, key);
+        } catch (IOException e) {
+            snapshot = null;
+        }
+        if (snapshot != null) {
+            snapshotSources = Collections.singletonList(SchemaSource.file(schemaFile));
+            SchemaCache.Entry entry = new SchemaCache.Entry(snapshot);
+            publish(entry, key);
+            return new HashMap<String, String>(entry.prefixes);
         }
-        OntClass c = modelAll.getOntClass(subject);
 
-        if (c != null) {
-            try {
-                ExtendedIterator itq = c.listDeclaredProperties(false);
-                while (itq.hasNext()) {
-                    OntProperty property = (OntProperty) itq.next();
-                    if (property.getDomain() != null) {
-                        listProps.add(property.toString());
-                    }
-                }
-                itq = modelAll.listAnnotationProperties();
-                while (itq.hasNext()) {
-                    OntProperty property = (OntProperty) itq.next();
-                    listProps.add(property.toString());
-                }
-            } catch (Exception ex) {
-                throw new Exception("Something went wrong: " + ex.getMessage());
+        SchemaCache.Entry entry = lines ? loadLines(schemaFile, extention) : load(content, null, extention);
+        try {
+            SchemaSnapshot.write(snapshotFile, key, entry.index, entry.prefixes, isConsistent(entry));
+        } catch (IOException e) {
+            //the schema is loaded anyway, the snapshot is written again next time
+        }
+        return new HashMap<String, String>(entry.prefixes);
+    }
 
+    /**
+     * The key a snapshot of a schema file is written with: the contents of
+     * the file (hashed by chunks for the line based formats, as
+     * {@link #initiateModel(File)} does), the reasoning profile and the
+     * mapping of the import catalog, if any. Must be called holding the lock
+     * of this reasoner.
+     *
+     * @param content the contents of the file, or null for the line based
+     * formats
+     */
+    private String snapshotKey(File schemaFile, byte[] content, String extention) throws FileNotFoundException {
+        String catalogKey = importCatalog == null ? null : "imports:" + importCatalog.key();
+        if (content == null) {
+            NTriplesLoader loader = new NTriplesLoader(schemaFile, extention);
+            try {
+                long start = System.nanoTime();
+                byte[] digest = loader.digest(loadExecutor());
+                metrics.time(ReasonerMetrics.Operation.FETCH, System.nanoTime() - start);
+                return SchemaCache.key("lines:" + catalogKey, digest, null, langs.get(extention), profile);
+            } finally {
+                loader.close();
             }
         }
+        return SchemaCache.key(catalogKey, content, null, langs.get(extention), profile);
+    }
 
-        //remove duplicates
-        Set setItems = new LinkedHashSet(listProps);
-        listProps.clear();
-        listProps.addAll(setItems);
-        //sort list
-        Collections.sort(listProps);
-        /*   for (String prop : listProps) {
-         System.out.println(prop);
-         }*/
-//        } catch (Exception e) {
-//            e.printStackTrace();
-//            System.out.println("exception subject " + subject);
-//        }
-        return listProps;
+    /**
+     * Loads a schema on top of the ones already loaded, like the
+     * initiateModel methods.
+     *
+     * @return the namespace prefixes of the schema
+     */
+    synchronized Map<String, String> initiateModel(SchemaSource source) throws FileNotFoundException {
+        if (source.getFile() != null) {
+            return initiateModel(source.getFile());
+        }
+        return new HashMap<String, String>(load(source.read(remoteCache), source.getBase(), source.getExtention()).prefixes);
     }
 
     /**
-     * Initiates the ontology and checks the consistency of the model
+     * Publishes the schemas of a snapshot in place of the loaded ones. Unlike
+     * {@link #initiateModel(File, File)} the contents of the schemas are not
+     * kept: the first {@link #select(String, Map)}, {@link #ask(String, Map)}
+     * or load on top of them reads and loads the sources again.
+     *
+     * @param snapshot the snapshot of the schemas
+     * @param key the cache key of the schemas
+     * @param sources the schemas the snapshot was taken of, in load order
+     */
+    synchronized void restore(SchemaSnapshot snapshot, String key, List<SchemaSource> sources) {
+        snapshotSources = sources;
+        publish(new SchemaCache.Entry(snapshot), key);
+    }
+
+    /**
+     * @return the schemas loaded so far, or null if none
+     */
+    synchronized SchemaCache.Entry current() {
+        return current;
+    }
+
+    /**
+     * @return the cache key of the schemas loaded so far, or null if none
+     */
+    synchronized String modelKey() {
+        return modelKey;
+    }
+
+    /**
+     * Adds a schema on top of the ones already loaded and reports what it
+     * changed. Unlike {@link #initiateModel(File)}, the new schema and the
+     * statements of the loaded ones are merged into a single model that is
+     * classified once, instead of chaining a new reasoner over the previous
+     * one, and only the entries of the index that the new statements can
+     * affect are computed again.
+     *
+     * @param schemaFile
+     * @return the classes and properties that are new or changed
+     * @throws java.io.FileNotFoundException
+     */
+    public synchronized SchemaDelta addModel(File schemaFile) throws FileNotFoundException {
+        String filePath = schemaFile.getPath();
+        String extention = filePath.substring(filePath.lastIndexOf("."));
+
+        return loadIncremental(read(schemaFile), null, extention);
+    }
+
+    /**
+     * Adds a schema on top of the ones already loaded like
+     * {@link #addModel(File)}, reading it from a URL.
      *
      * @param modelNS
-     * @return true or false according to the consistency of the model
+     * @param extention
+     * @return the classes and properties that are new or changed
      */
-    public boolean initiateModel(String modelNS) {
-        // read the ontology with its imports
-        disableLogging();
+    public synchronized SchemaDelta addModelUrl(String modelNS, String extention) {
+
+        return loadIncremental(download(modelNS, extention), modelNS, extention);
+    }
+
+    /**
+     * Initiates the ontology like {@link #initiateModel(String)} but returns
+     * as soon as it is parsed, leaving its classification and consistency
+     * check to the background. Until the check is done, the query methods
+     * answer from the statements of the schemas as they are written (the
+     * subclass, subproperty, domain and range closures of
+     * {@link ReasoningProfile#FAST}); the answers of the classified schemas
+     * replace them before the check completes.
+     *
+     * @param modelNS
+     * @return the consistency check of the model
+     */
+    public synchronized ConsistencyCheck initiateModelDeferred(String modelNS) {
 
         String ext = modelNS.substring(modelNS.lastIndexOf("."));
-        OntModel model = ModelFactory.createOntologyModel(
-                PelletReasonerFactory.THE_SPEC, null);
-        // PelletOptions.FREEZE_BUILTIN_NAMESPACES =true;
-        //     PelletOptions.IGNORE_UNSUPPORTED_AXIOMS =true;
-        try {
-            model.setDerivationLogging(false);
-            model.read(modelNS, langs.get(ext));
+        return loadDeferred(download(modelNS, ext), modelNS, ext);
+    }
 
-        } catch (com.hp.hpl.jena.shared.JenaException e) {
-            //   e.printStackTrace();
-            if (e.getMessage().contains("java.io.IOExceptio")) {
-                throw new com.hp.hpl.jena.shared.JenaException("Connection refused to connect: " + e.getMessage());
-            } else if (e.toString().contains("com.hp.hpl.jena.shared.SyntaxError")) {
-                throw new com.hp.hpl.jena.shared.SyntaxError("Wrong file format for extention: " + ext);
-            } else {
-                throw new com.hp.hpl.jena.shared.JenaException("Error: " + e.getMessage());
+    /**
+     * Initiates the ontology like {@link #initiateModelUrl(String, String)},
+     * classifying it and checking its consistency in the background like
+     * {@link #initiateModelDeferred(String)}.
+     *
+     * @param modelNS
+     * @param extention
+     * @return the consistency check of the model
+     */
+    public synchronized ConsistencyCheck initiateModelUrlDeferred(String modelNS, String extention) {
 
-            }
-        }
+        return loadDeferred(download(modelNS, extention), modelNS, extention);
+    }
 
-        model.prepare();
-        OntModel tmp = modelAll;
-        modelAll = model;
-        modelAll.addSubModel(tmp); //test if with subModel works as with add
-        //Reason for this change was that rdfs schema was not loaded with some  schemata. For example skos
-        KnowledgeBase kb = ((PelletInfGraph) model.getGraph()).getKB();
+    /**
+     * Initiates the ontology like
+     * {@link #initiateModelFileContent(String, String)}, classifying it and
+     * checking its consistency in the background like
+     * {@link #initiateModelDeferred(String)}.
+     *
+     * @param fileContent
+     * @param extention
+     * @return the consistency check of the model
+     */
+    public synchronized ConsistencyCheck initiateModelFileContentDeferred(String fileContent, String extention) {
 
-        boolean consistent = kb.isConsistent();
-        return consistent;
+        return loadDeferred(download(fileContent, extention), null, extention);
+    }
+
+    /**
+     * Checks the consistency of the schemas loaded so far in the background.
+     * Calling it again before another schema is loaded returns the same
+     * check; loading another schema cancels it.
+     *
+     * @return the consistency check of the loaded schemas
+     */
+    public synchronized ConsistencyCheck checkConsistency() {
+        if (consistencyCheck == null) {
+            consistencyCheck = new ConsistencyCheck(current, metrics);
+            consistencyCheck.start();
+        }
+        return consistencyCheck;
+    }
+
+    /**
+     * Checks the consistency of the schemas loaded so far
+     *
+     * @return true or false according to the consistency of the model
+     */
+    public synchronized boolean isConsistent() {
+        return current == null || isConsistent(current);
     }
 
     /**
      * Initiates the ontology and checks the consistency of the model
      *
-     * @param modelNS
+     * @param fileContent
      * @param extention
      * @return true or false according to the consistency of the model
      */
-    public boolean initiateModelUrl(String modelNS, String extention) {
+    public synchronized boolean initiateModelFileContent(String fileContent, String extention) {
         // read the ontology with its imports
-        disableLogging();
 
-        OntModel model = ModelFactory.createOntologyModel(
-                PelletReasonerFactory.THE_SPEC, null);
-        try {
+        SchemaCache.Entry entry = load(download(fileContent, extention), null, extention);
+        return isConsistent(entry);
+    }
+
+    /**
+     * Loads several schemas without blocking the calling thread. The sources
+     * are fetched and parsed concurrently, then merged and classified once on
+     * top of the schemas already loaded. Fetching and parsing run on virtual
+     * threads when the JVM has them, on a pool of daemon threads otherwise.
+     *
+     * @param sources the schemas to load
+     * @return the report of the loading; it completes exceptionally only if
+     * the merged schemas could not be classified
+     */
+    public CompletableFuture<SchemaLoadReport> loadAsync(List<SchemaSource> sources) {
+        return loadAsync(sources, loadExecutor());
+    }
+
+    /**
+     * Loads several schemas like {@link #loadAsync(List)}, running the work on
+     * the given executor.
+     *
+     * @param sources the schemas to load
+     * @param executor runs the fetching, parsing and classification
+     * @return the report of the loading; it completes exceptionally only if
+     * the merged schemas could not be classified
+     */
+    public CompletableFuture<SchemaLoadReport> loadAsync(List<SchemaSource> sources, final Executor executor) {
+        final long start = System.nanoTime();
+        final RemoteSchemaCache remote = getRemoteCache();
+        final List<CompletableFuture<Parsed>> parsing = new ArrayList<CompletableFuture<Parsed>>();
+        for (final SchemaSource source : sources) {
+            parsing.add(CompletableFuture.supplyAsync(new Supplier<Parsed>() {
+                @Override
+                public Parsed get() {
+                    return new Parsed(source, remote);
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(parsing.toArray(new CompletableFuture<?>[parsing.size()]))
+                .thenApplyAsync(new Function<Void, SchemaLoadReport>() {
+                    @Override
+                    public SchemaLoadReport apply(Void done) {
+                        List<Parsed> parsed = new ArrayList<Parsed>();
+                        for (CompletableFuture<Parsed> source : parsing) {
+                            parsed.add(source.join());
+                        }
+                        return loadParsed(parsed, start);
+                    }
+                }, executor);
+    }
+
+    /**
+     * Merges and classifies the parsed sources of
+     * {@link #loadAsync(List, Executor)}, unless one of them failed.
+     */
+    private synchronized SchemaLoadReport loadParsed(List<Parsed> parsed, long start) {
+        List<SchemaLoadReport.SourceReport> reports = new ArrayList<SchemaLoadReport.SourceReport>();
+        boolean failed = false;
+        for (Parsed source : parsed) {
+            reports.add(source.report());
+            failed |= source.error != null;
+            if (source.content != null) {
+                metrics.time(ReasonerMetrics.Operation.FETCH, source.fetchNanos);
+            }
+            if (source.error == null) {
+                metrics.time(ReasonerMetrics.Operation.PARSE, source.parseNanos);
+            }
+        }
+        reports = Collections.unmodifiableList(reports);
+        if (failed) {
+            return new SchemaLoadReport(reports, false, Collections.<String, String>emptyMap(), 0,
+                    (System.nanoTime() - start) / 1000000);
+        }
+        restoreSnapshot();
+        Model merged = null;
+        ImportResolver.Imports imports = null;
+        if (importCatalog != null) {
+            //the imports are part of the key, so the schemas are merged first to find them
+            merged = merge(parsed);
+            imports = resolveImports(ImportResolver.Declared.of(merged));
+        }
+        String key = "merged:" + importsKey(modelKey, imports);
+        for (Parsed source : parsed) {
+            key = SchemaCache.key(key, source.content, source.source.getBase(),
+                    langs.get(source.source.getExtention()), profile);
+        }
+        long classification = 0;
+        SchemaCache.Entry entry = cached(key);
+        if (entry == null) {
+            long classifying = System.nanoTime();
+            if (merged == null) {
+                merged = merge(parsed);
+            }
+            Map<String, String> nsPrefixMap = new HashMap<String, String>();
+            for (Parsed source : parsed) {
+                nsPrefixMap.putAll(source.model.getNsPrefixMap());
+            }
+            OntModel model = ModelFactory.createOntologyModel(spec(), merged);
             model.setDerivationLogging(false);
-            model.read(modelNS, langs.get(extention));
+            entry = classify(model, nsPrefixMap, imports, key);
+            classification = (System.nanoTime() - classifying) / 1000000;
+        }
+        publish(entry, key);
+        return new SchemaLoadReport(reports, true, entry.prefixes, classification,
+                (System.nanoTime() - start) / 1000000);
+    }
 
-        } catch (com.hp.hpl.jena.shared.JenaException e) {
-            if (e.getMessage().contains("java.io.IOExceptio")) {
-                throw new com.hp.hpl.jena.shared.JenaException("Connection refused to connect: " + e.getMessage());
-            } else if (e.toString().contains("com.hp.hpl.jena.shared.SyntaxError")) {
-                throw new com.hp.hpl.jena.shared.SyntaxError("Wrong file format for extention: " + extention);
-            } else {
-                throw new com.hp.hpl.jena.shared.JenaException("Error: " + e.getMessage());
+    private static Model merge(List<Parsed> parsed) {
+        Model merged = ModelFactory.createDefaultModel();
+        for (Parsed source : parsed) {
+            merged.add(source.model);
+        }
+        return merged;
+    }
+
+    /**
+     * A source of {@link #loadAsync(List, Executor)}, fetched and parsed on
+     * its own (or the reason it could not be).
+     */
+    private static final class Parsed {
+
+        final SchemaSource source;
+        byte[] content;
+        Model model;
+        long fetchNanos;
+        long parseNanos;
+        Exception error;
+
+        Parsed(SchemaSource source, RemoteSchemaCache remote) {
+            this.source = source;
+            long start = System.nanoTime();
+            try {
+                content = source.read(remote);
+                long fetched = System.nanoTime();
+                fetchNanos = fetched - start;
+                model = ModelFactory.createDefaultModel();
+                try {
+                    model.read(new ByteArrayInputStream(content), source.getBase(), langs.get(source.getExtention()));
+                } catch (com.hp.hpl.jena.shared.JenaException e) {
+                    throw readError(e, source.getExtention());
+                }
+                parseNanos = System.nanoTime() - fetched;
+            } catch (FileNotFoundException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = e;
             }
         }
 
-        model.prepare();
-        OntModel tmp = modelAll;
-        modelAll = model;
-        modelAll.addSubModel(tmp); //test if with subModel works as with add
-        //Reason for this change was that rdfs schema was not loaded with some  schemata. For example skos
-        KnowledgeBase kb = ((PelletInfGraph) model.getGraph()).getKB();
-        boolean consistent = kb.isConsistent();
-        return consistent;
+        SchemaLoadReport.SourceReport report() {
+            return new SchemaLoadReport.SourceReport(source, fetchNanos / 1000000, parseNanos / 1000000,
+                    model == null || error != null ? 0 : model.size(), error);
+        }
     }
 
     /**
-     * Initiates the ontology and checks the consistency of the model
+     * Changes the cache where classified schemas are looked up before being
+     * parsed and classified again. By default the cache shared by the whole
+     * process is used.
      *
-     * @param schemaFile
+     * @param cache the cache to use, or null to always load from scratch
+     */
+    public synchronized void setSchemaCache(SchemaCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Changes the disk cache through which schemas are downloaded over HTTP.
+     * By default they are downloaded every time they are loaded.
      *
-     * @return true or false according to the consistency of the model
+     * @param remoteCache the cache to use, or null to always download
      */
-    public Map<String, String> initiateModel(File schemaFile) throws FileNotFoundException {
-        // read the ontology with its imports
-        disableLogging();
-        InputStream targetStream = new FileInputStream(schemaFile);
-        String filePath = schemaFile.getPath();
-        String extention = filePath.substring(filePath.lastIndexOf("."));
+    public synchronized void setRemoteCache(RemoteSchemaCache remoteCache) {
+        this.remoteCache = remoteCache;
+    }
+
+    public synchronized RemoteSchemaCache getRemoteCache() {
+        return remoteCache;
+    }
+
+    /**
+     * Changes how the owl:imports of the schemas loaded from now on are
+     * followed. By default Jena reads them one after the other from their
+     * IRIs; with a catalog they are read concurrently from the locations it
+     * maps them to on every load, and parsed once per process while their
+     * contents do not change. The schemas are cached by the locations and
+     * contents of their imports as well.
+     *
+     * @param importCatalog the catalog, or null to let Jena follow the imports
+     */
+    public synchronized void setImportCatalog(ImportCatalog importCatalog) {
+        this.importCatalog = importCatalog;
+    }
+
+    public synchronized ImportCatalog getImportCatalog() {
+        return importCatalog;
+    }
+
+    /**
+     * Changes where the measurements of this reasoner go: the time spent
+     * fetching, parsing, classifying and checking schemas, the latency of
+     * {@link #listProperties(String)}, {@link #listObjects(String)} and
+     * {@link #getAllClasses()}, the size of the loaded schemas and the schema
+     * cache lookups. By default nothing is measured.
+     *
+     * @param metrics the metrics to record to, or null to record nothing
+     */
+    public void setMetrics(ReasonerMetrics metrics) {
+        this.metrics = metrics == null ? ReasonerMetrics.NOOP : metrics;
+    }
+
+    public ReasonerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Changes the reasoning applied to the schemas loaded from now on. The
+     * schemas already loaded are not reclassified. By default full OWL-DL
+     * reasoning with Pellet is used.
+     *
+     * @param profile the reasoning profile
+     */
+    public synchronized void setReasoningProfile(ReasoningProfile profile) {
+        if (profile == null) {
+            throw new NullPointerException("The profile is null");
+        }
+        this.profile = profile;
+    }
+
+    public synchronized ReasoningProfile getReasoningProfile() {
+        return profile;
+    }
 
-        OntModel model = ModelFactory.createOntologyModel(
-                PelletReasonerFactory.THE_SPEC, null);
-        Map<String, String> nsPrefixMap = new <String, String>HashMap();
+    /**
+     * Parses and classifies a schema on top of the ones already loaded, or
+     * takes it from the cache if the same contents were loaded (in the same
+     * order) before, and publishes it. Must be called holding the lock of
+     * this reasoner.
+     */
+    private SchemaCache.Entry load(byte[] content, String base, String extention) {
+        restoreSnapshot();
+        String lang = langs.get(extention);
+        OntModel model = null;
+        ImportResolver.Imports imports = null;
+        if (importCatalog != null) {
+            //the imports are part of the key; contents not seen before are parsed to find them
+            String schema = ImportResolver.key(content, base, lang);
+            ImportResolver.Declared declared = ImportResolver.shared().declared(schema);
+            if (declared == null) {
+                model = parse(content, base, extention);
+                declared = ImportResolver.shared().declare(schema, model.getBaseModel());
+            }
+            imports = resolveImports(declared);
+        }
+        String key = SchemaCache.key(importsKey(modelKey, imports), content, base, lang, profile);
+        SchemaCache.Entry entry = cached(key);
+        if (entry == null) {
+            if (model == null) {
+                model = parse(content, base, extention);
+            }
+            entry = classify(model, model.getNsPrefixMap(), imports, key);
+        }
+        publish(entry, key);
+        return entry;
+    }
 
+    /**
+     * Reads a schema into a new model of the current profile. Must be called
+     * holding the lock of this reasoner.
+     */
+    private OntModel parse(byte[] content, String base, String extention) {
+        OntModel model = ModelFactory.createOntologyModel(spec(), null);
+        long parsing = System.nanoTime();
         try {
             model.setDerivationLogging(false);
-            model.read(targetStream, null, langs.get(extention));
-            nsPrefixMap = model.getNsPrefixMap();
-            //change listNamespace with getNsPrefixMap to see if it works because listNamespace only return the properties used in 
-            //(a) every URI used as a property in the model and (b) those of every URI that appears as the object of an rdf:type statement.
-//            NsIterator listNameSpaces = model.listNameSpaces();
-//            while (listNameSpaces.hasNext()) {
-//                String ns = listNameSpaces.next();
-//                String prefix = model.getNsURIPrefix(ns);
-//                nsPrefixMap.put(ns, prefix);
-//                System.out.println("ns:: " + ns);
-//
-//            }
-
+            model.read(new ByteArrayInputStream(content), base, langs.get(extention));
         } catch (com.hp.hpl.jena.shared.JenaException e) {
-            if (e.getMessage().contains("java.io.IOExceptio")) {
-                throw new com.hp.hpl.jena.shared.JenaException("Connection refused to connect: " + e.getMessage());
-            } else if (e.toString().contains("com.hp.hpl.jena.shared.SyntaxError")) {
-                throw new com.hp.hpl.jena.shared.SyntaxError("Wrong file format for extention: " + extention);
-            } else {
-                throw new com.hp.hpl.jena.shared.JenaException("Error: " + e.getMessage());
+            throw readError(e, extention);
+        }
+        metrics.time(ReasonerMetrics.Operation.PARSE, System.nanoTime() - parsing);
+        return model;
+    }
+
+    /**
+     * Parses a schema on top of the ones already loaded like
+     * {@link #load(byte[], String, String)}, but publishes it at once with an
+     * index of its asserted statements, computed like with the
+     * {@link ReasoningProfile#FAST} profile. Its classification by Pellet and
+     * its consistency check are left to the returned check, which publishes
+     * the index of the classified schema in place of the provisional one
+     * before it completes. Schemas found in the cache, and the profiles other
+     * than PELLET_DL, are published as usual and only their consistency is
+     * checked in the background. Must be called holding the lock of this
+     * reasoner.
+     */
+    private ConsistencyCheck loadDeferred(byte[] content, String base, String extention) {
+        if (profile != ReasoningProfile.PELLET_DL) {
+            load(content, base, extention);
+            return checkConsistency();
+        }
+        restoreSnapshot();
+        OntModel parsed = null;
+        ImportResolver.Imports imports = null;
+        if (importCatalog != null) {
+            //the imports are part of the key; contents not seen before are parsed to find them
+            String schema = ImportResolver.key(content, base, langs.get(extention));
+            ImportResolver.Declared declared = ImportResolver.shared().declared(schema);
+            if (declared == null) {
+                parsed = parse(content, base, extention);
+                declared = ImportResolver.shared().declare(schema, parsed.getBaseModel());
             }
+            imports = resolveImports(declared);
         }
+        final String key = SchemaCache.key(importsKey(modelKey, imports), content, base, langs.get(extention),
+                profile);
+        SchemaCache.Entry entry = cached(key);
+        if (entry != null) {
+            publish(entry, key);
+            return checkConsistency();
+        }
+        final OntModel model = parsed != null ? parsed : parse(content, base, extention);
+        final Map<String, String> nsPrefixMap = model.getNsPrefixMap();
+        final long triples = addImports(model, imports);
+        final SchemaCache.Entry parent = current;
+        final SchemaCache.Entry provisional;
+        synchronized (PELLET_LOCK) {
+            synchronized (SchemaCache.Entry.lock(parent, model)) {
+                model.addSubModel(parent != null ? modelAll : emptyModel());
+                Model asserted = SchemaIndex.assertedModel(model);
+                provisional = new SchemaCache.Entry(model, SchemaClosure.build(asserted, asserted), nsPrefixMap,
+                        parent, triples, null, true);
+            }
+        }
+        publish(provisional, key);
 
-        model.prepare();
-        OntModel tmp = modelAll;
-        modelAll = model;
-        modelAll.addSubModel(tmp); //test if with subModel works as with add
-        //Reason for this change was that rdfs schema was not loaded with some  schemata. For example skos
-        //    KnowledgeBase kb = ((PelletInfGraph) model.getGraph()).getKB();
-        //    boolean consistent = kb.isConsistent();
+        final ReasoningProfile classifying = profile;
+        final ReasonerMetrics measuring = metrics;
+        final SchemaCache caching = cache;
+        consistencyCheck = new ConsistencyCheck(provisional, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                SchemaCache.Entry classified;
+                synchronized (PELLET_LOCK) {
+                    synchronized (provisional.lock) {
+                        classified = prepare(model, null, null, nsPrefixMap, parent, triples, classifying, measuring);
+                    }
+                }
+                measuring.schemaLoaded(triples, classified.index.getAllClasses().size());
+                if (caching != null) {
+                    caching.put(key, classified);
+                }
+                classified(provisional, classified);
+                return isConsistent(classified, measuring);
+            }
+        });
+        consistencyCheck.start();
+        return consistencyCheck;
+    }
 
-        return nsPrefixMap;
+    /**
+     * Publishes a classified schema in place of its provisional version, if
+     * no other schema was loaded in the meantime.
+     */
+    private synchronized void classified(SchemaCache.Entry provisional, SchemaCache.Entry entry) {
+        if (current == provisional) {
+            current = entry;
+            index = entry.index;
+            completer = entry.completer();
+        }
     }
 
     /**
-     * Initiates the ontology and checks the consistency of the model
-     *
-     * @param modelNS
-     * @param extention
-     * @return true or false according to the consistency of the model
+     * Loads an N-Triples or N-Quads file like {@link #load(byte[], String, String)},
+     * hashing and parsing its chunks in parallel (see {@link NTriplesLoader}).
+     * Must be called holding the lock of this reasoner.
      */
-    public boolean initiateModelFileContent(String fileContent, String extention) {
-        // read the ontology with its imports
-        disableLogging();
+    private SchemaCache.Entry loadLines(File schemaFile, String extention) throws FileNotFoundException {
+        restoreSnapshot();
+        NTriplesLoader loader = new NTriplesLoader(schemaFile, extention);
+        try {
+            long start = System.nanoTime();
+            byte[] digest = loader.digest(loadExecutor());
+            metrics.time(ReasonerMetrics.Operation.FETCH, System.nanoTime() - start);
+            OntModel model = null;
+            ImportResolver.Imports imports = null;
+            if (importCatalog != null) {
+                //the imports are part of the key; files not seen before are parsed to find them
+                String schema = ImportResolver.key(digest, null, "lines:" + langs.get(extention));
+                ImportResolver.Declared declared = ImportResolver.shared().declared(schema);
+                if (declared == null) {
+                    model = parseLines(loader);
+                    declared = ImportResolver.shared().declare(schema, model.getBaseModel());
+                }
+                imports = resolveImports(declared);
+            }
+            String key = SchemaCache.key("lines:" + importsKey(modelKey, imports), digest, null,
+                    langs.get(extention), profile);
+            SchemaCache.Entry entry = cached(key);
+            if (entry == null) {
+                if (model == null) {
+                    model = parseLines(loader);
+                }
+                //the lines have no prefixes, but the model has the standard ones
+                entry = classify(model, model.getNsPrefixMap(), imports, key);
+            }
+            publish(entry, key);
+            return entry;
+        } finally {
+            loader.close();
+        }
+    }
 
-        OntModel model = ModelFactory.createOntologyModel(
-                PelletReasonerFactory.THE_SPEC, null);
-        InputStream in = FileManager.get().open(fileContent);
+    /**
+     * Parses the chunks of a line based file into a new model of the current
+     * profile. Must be called holding the lock of this reasoner.
+     */
+    private OntModel parseLines(NTriplesLoader loader) {
+        long parsing = System.nanoTime();
+        Model base = ModelFactory.createModelForGraph(loader.parse(loadExecutor()));
+        metrics.time(ReasonerMetrics.Operation.PARSE, System.nanoTime() - parsing);
+        OntModel model = ModelFactory.createOntologyModel(spec(), base);
+        model.setDerivationLogging(false);
+        return model;
+    }
 
-        try {
-            model.setDerivationLogging(false);
-            model.read(in, langs.get(extention));
+    /**
+     * Looks a schema up in the cache, if there is one. Must be called holding
+     * the lock of this reasoner.
+     */
+    private SchemaCache.Entry cached(String key) {
+        if (cache == null) {
+            return null;
+        }
+        SchemaCache.Entry entry = cache.get(key);
+        metrics.cacheLookup(entry != null);
+        return entry;
+    }
 
-        } catch (com.hp.hpl.jena.shared.JenaException e) {
-            if (e.getMessage().contains("java.io.IOExceptio")) {
-                throw new com.hp.hpl.jena.shared.JenaException("Connection refused to connect: " + e.getMessage());
-            } else if (e.toString().contains("com.hp.hpl.jena.shared.SyntaxError")) {
-                throw new com.hp.hpl.jena.shared.SyntaxError("Wrong file format for extention: " + extention);
-            } else {
-                throw new com.hp.hpl.jena.shared.JenaException("Error: " + e.getMessage());
+    /**
+     * Parses again the schemas restored from a snapshot, if that is what is
+     * loaded, since their model is needed to query them or to load another
+     * schema on top of them. If they cannot be read, the snapshot stays
+     * published. Must be called holding the lock of this reasoner.
+     *
+     * @throws com.hp.hpl.jena.shared.NotFoundException if a restored file is
+     * gone
+     */
+    private void restoreSnapshot() {
+        if (current != null && current.model == null) {
+            SchemaCache.Entry restored = current;
+            String restoredKey = modelKey;
+            OntModel restoredModel = modelAll;
+            List<SchemaSource> sources = snapshotSources;
+            snapshotSources = null;
+            modelKey = null;
+            current = null;
+            boolean reloaded = false;
+            try {
+                for (SchemaSource source : sources) {
+                    initiateModel(source);
+                }
+                reloaded = true;
+            } catch (FileNotFoundException e) {
+                throw new com.hp.hpl.jena.shared.NotFoundException(e.getMessage());
+            } finally {
+                if (!reloaded) {
+                    snapshotSources = sources;
+                    modelAll = restoredModel;
+                    publish(restored, restoredKey);
+                }
             }
         }
+    }
 
-        model.prepare();
-        OntModel tmp = modelAll;
-        modelAll = model;
-        modelAll.addSubModel(tmp); //test if with subModel works as with add
-        //Reason for this change was that rdfs schema was not loaded with some  schemata. For example skos
-        KnowledgeBase kb = ((PelletInfGraph) model.getGraph()).getKB();
-        boolean consistent = kb.isConsistent();
-        return consistent;
+    /**
+     * The specification of the models of the current profile. With an import
+     * catalog, Jena must not follow the imports itself. Must be called
+     * holding the lock of this reasoner.
+     */
+    private OntModelSpec spec() {
+        if (importCatalog == null) {
+            return profile.spec();
+        }
+        OntModelSpec spec = new OntModelSpec(profile.spec());
+        OntDocumentManager documentManager = new OntDocumentManager();
+        documentManager.setProcessImports(false);
+        spec.setDocumentManager(documentManager);
+        return spec;
     }
 
     /**
-     * Return all classes of the model
+     * Resolves the import closure of a schema through the import catalog.
+     * Must be called holding the lock of this reasoner.
      *
-     * @return an arrayList with all the classes of the model
-     * @throws java.lang.Exception
+     * @param declared what the schema declares and imports
+     * @return its imports
      */
-    public ArrayList<String> getAllClasses() throws Exception {
-        disableLogging();
-        ArrayList<String> listClasses = new ArrayList();
+    private ImportResolver.Imports resolveImports(ImportResolver.Declared declared) {
+        return ImportResolver.shared().resolve(declared, importCatalog, remoteCache);
+    }
 
-        try {
-            ExtendedIterator<OntClass> listClassesIt = modelAll.listClasses();
+    /**
+     * Schemas whose imports were resolved through a catalog are cached apart
+     * from the ones whose imports Jena followed, and by where their imports
+     * were read from and what they contained.
+     */
+    private static String importsKey(String parentKey, ImportResolver.Imports imports) {
+        return imports == null ? parentKey : "imports:" + imports.key + ":" + parentKey;
+    }
+
+    /**
+     * Adds the import closure of a parsed schema to its model.
+     *
+     * @param imports the imports, or null if there is no catalog
+     * @return the number of statements of the schema and of its imports
+     */
+    private static long addImports(OntModel model, ImportResolver.Imports imports) {
+        long triples = model.getBaseModel().size();
+        if (imports != null) {
+            for (Model imported : imports.models) {
+                model.addSubModel(imported, false);
+            }
+            model.rebind();
+            triples += imports.triples;
+        }
+        return triples;
+    }
+
+    /**
+     * Classifies a parsed schema on top of the ones already loaded and caches
+     * the result. Must be called holding the lock of this reasoner.
+     */
+    private SchemaCache.Entry classify(OntModel model, Map<String, String> nsPrefixMap,
+            ImportResolver.Imports imports, String key) {
+        long triples = addImports(model, imports);
+        SchemaCache.Entry entry;
+        synchronized (PELLET_LOCK) {
+            synchronized (SchemaCache.Entry.lock(current, model)) {
+                if (current != null) {
+                    model.addSubModel(modelAll); //test if with subModel works as with add
+                } else if (profile == ReasoningProfile.PELLET_DL) {
+                    //the other profiles do not need the empty Pellet model of a new reasoner
+                    //Reason for this change was that rdfs schema was not loaded with some  schemata. For example skos
+                    model.addSubModel(emptyModel());
+                }
+                entry = prepare(model, null, null, nsPrefixMap, current, triples, profile, metrics);
+            }
+        }
+        metrics.schemaLoaded(triples, entry.index.getAllClasses().size());
+        if (cache != null) {
+            cache.put(key, entry);
+        }
+        return entry;
+    }
 
-            while (listClassesIt.hasNext()) {
-                OntClass c = (OntClass) listClassesIt.next();
-                if (c.getURI() != null) {
-                    listClasses.add(c.getURI());
+    /**
+     * Merges a schema with the statements of the loaded ones, classifies the
+     * result and updates the index incrementally. Must be called holding the
+     * lock of this reasoner.
+     */
+    private SchemaDelta loadIncremental(byte[] content, String base, String extention) {
+        SchemaIndex previous = index;
+        if (current == null || current.model == null) {
+            //nothing to merge with (or only a snapshot of it), a plain load is as fast
+            return load(content, base, extention).index.diff(previous);
+        }
+        String lang = langs.get(extention);
+        String key = SchemaCache.key("incremental:" + modelKey, content, base, lang, profile);
+        SchemaCache.Entry entry = cached(key);
+        if (entry == null) {
+            Model added = ModelFactory.createDefaultModel();
+            long parsing = System.nanoTime();
+            try {
+                added.read(new ByteArrayInputStream(content), base, lang);
+            } catch (com.hp.hpl.jena.shared.JenaException e) {
+                throw readError(e, extention);
+            }
+            metrics.time(ReasonerMetrics.Operation.PARSE, System.nanoTime() - parsing);
+            Map<String, String> nsPrefixMap = added.getNsPrefixMap();
+            OntModel model = ModelFactory.createOntologyModel(profile.spec(), added);
+            synchronized (PELLET_LOCK) {
+                synchronized (current.lock) {
+                    Model loaded = ModelFactory.createModelForGraph(SchemaIndex.assertedGraph(modelAll));
+                    model.setDerivationLogging(false);
+                    model.addSubModel(loaded);
+                    if (profile == ReasoningProfile.PELLET_DL) {
+                        //like the first model of a chain, an empty reasoner supplies the
+                        //built-in OWL vocabulary that some schemas (e.g. skos) rely on
+                        model.addSubModel(emptyModel());
+                    }
+                    long triples = added.size() + loaded.size();
+                    //the provisional index of a deferred load has nothing to reuse
+                    entry = prepare(model, current.provisional ? null : previous, current.provisional ? null : added,
+                            nsPrefixMap, current, triples, profile, metrics);
                 }
+            }
+            metrics.schemaLoaded(entry.bytes / SchemaCache.BYTES_PER_TRIPLE, entry.index.getAllClasses().size());
+            if (cache != null) {
+                cache.put(key, entry);
+            }
+        }
+        publish(entry, key);
+        return entry.index.diff(previous);
+    }
+
+    /**
+     * Prepares a parsed model and indexes it. Pellet loads the model without
+     * checking it, its consistency is then checked on its own, and the index
+     * classifies it, so the check and the classification are timed apart.
+     * The rule reasoners of the other profiles are only prepared; their
+     * consistency is checked when it is asked for. Must be called holding
+     * {@link #PELLET_LOCK}.
+     */
+    static SchemaCache.Entry prepare(OntModel model, SchemaIndex previous, Model added,
+            Map<String, String> nsPrefixMap, SchemaCache.Entry parent, long triples,
+            ReasoningProfile profile, ReasonerMetrics metrics) {
+        long classifying = System.nanoTime();
+        long checking = 0;
+        Boolean consistent = null;
+        if (model.getGraph() instanceof PelletInfGraph) {
+            PelletInfGraph graph = (PelletInfGraph) model.getGraph();
+            graph.prepare(false);
+            long start = System.nanoTime();
+            consistent = graph.getKB().isConsistent();
+            checking = System.nanoTime() - start;
+            metrics.time(ReasonerMetrics.Operation.CONSISTENCY, checking);
+        } else {
+            model.prepare();
+        }
+        SchemaCache.Entry entry = new SchemaCache.Entry(model, index(model, previous, added, profile),
+                nsPrefixMap, parent, triples, consistent, false);
+        metrics.time(ReasonerMetrics.Operation.CLASSIFY, System.nanoTime() - classifying - checking);
+        return entry;
+    }
+
+    /**
+     * Indexes a prepared model the way a profile requires.
+     */
+    private static SchemaIndex index(OntModel model, SchemaIndex previous, Model added, ReasoningProfile profile) {
+        if (profile == ReasoningProfile.PELLET_DL) {
+            return SchemaIndex.build(model, previous, added);
+        }
+        return SchemaClosure.build(model, SchemaIndex.assertedModel(model));
+    }
+
+    private boolean isConsistent(SchemaCache.Entry entry) {
+        return isConsistent(entry, metrics);
+    }
+
+    /**
+     * Checks the consistency of a schema, timing it unless the answer is
+     * already known.
+     */
+    static boolean isConsistent(SchemaCache.Entry entry, ReasonerMetrics metrics) {
+        if (entry.isChecked()) {
+            return entry.isConsistent();
+        }
+        synchronized (PELLET_LOCK) {
+            synchronized (entry.lock) {
+                long start = System.nanoTime();
+                boolean consistent = entry.isConsistent();
+                metrics.time(ReasonerMetrics.Operation.CONSISTENCY, System.nanoTime() - start);
+                return consistent;
+            }
+        }
+    }
+
+    /**
+     * Fetches a schema through the remote cache of this reasoner, timing it.
+     * Must be called holding the lock of this reasoner.
+     */
+    private byte[] download(String location, String extention) {
+        long start = System.nanoTime();
+        byte[] content = fetch(location, extention, remoteCache);
+        metrics.time(ReasonerMetrics.Operation.FETCH, System.nanoTime() - start);
+        return content;
+    }
+
+    private byte[] read(File file) throws FileNotFoundException {
+        long start = System.nanoTime();
+        byte[] content = readFile(file);
+        metrics.time(ReasonerMetrics.Operation.FETCH, System.nanoTime() - start);
+        return content;
+    }
 
+    /**
+     * Reads the contents of a URL (or a file name) the way Jena would when
+     * reading a model from it, going through the disk cache (if any) for http
+     * and https URLs.
+     */
+    static byte[] fetch(String location, String extention, RemoteSchemaCache remote) {
+        if (remote != null && RemoteSchemaCache.isRemote(location)) {
+            try {
+                return remote.get(location);
+            } catch (IOException e) {
+                throw new com.hp.hpl.jena.shared.JenaException("Connection refused to connect: " + e.getMessage());
             }
-        } catch (Exception ex) {
-            throw new Exception("Something went wrong :" + ex.getMessage());
         }
-        //remove duplicates
-        Set setItems = new LinkedHashSet(listClasses);
-        listClasses.clear();
-        listClasses.addAll(setItems);
-        //sort
-        Collections.sort(listClasses);
-        /*for (String c : listClasses) {
-         System.out.println(c);
-         }*/
+        InputStream in;
+        try {
+            in = FileManager.get().open(location);
+        } catch (com.hp.hpl.jena.shared.JenaException e) {
+            throw readError(e, extention);
+        }
+        if (in == null) {
+            throw new com.hp.hpl.jena.shared.JenaException("Error: Not found: " + location);
+        }
+        try {
+            return readContent(in);
+        } catch (IOException e) {
+            throw new com.hp.hpl.jena.shared.JenaException("Connection refused to connect: " + e.getMessage());
+        }
+    }
 
-        return listClasses;
+    static byte[] readFile(File file) throws FileNotFoundException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return readContent(in);
+        } catch (IOException e) {
+            throw new com.hp.hpl.jena.shared.JenaException("Error: " + e.getMessage());
+        }
+    }
 
+    private static byte[] readContent(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static RuntimeException readError(com.hp.hpl.jena.shared.JenaException e, String extention) {
+        if (e.getMessage() != null && e.getMessage().contains("java.io.IOExceptio")) {
+            return new com.hp.hpl.jena.shared.JenaException("Connection refused to connect: " + e.getMessage());
+        } else if (e.toString().contains("com.hp.hpl.jena.shared.SyntaxError")) {
+            return new com.hp.hpl.jena.shared.SyntaxError("Wrong file format for extention: " + extention);
+        } else {
+            return new com.hp.hpl.jena.shared.JenaException("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Return all classes of the model
+     *
+     * @return an arrayList with all the classes of the model
+     * @throws java.lang.Exception
+     */
+    public ArrayList<String> getAllClasses() throws Exception {
+        long start = System.nanoTime();
+        ArrayList<String> classes = new ArrayList<String>(index.getAllClasses());
+        metrics.time(ReasonerMetrics.Operation.GET_ALL_CLASSES, System.nanoTime() - start);
+        return classes;
     }
 
     /**
@@ -373,118 +1229,396 @@ public class OntologyReasoner {
      * @throws java.lang.Exception
      */
     public ArrayList<String> listObjects(String property) throws Exception, InvalidParameterException, NullPointerException, QueryParseException {
-
-        disableLogging();
+        long start = System.nanoTime();
         ArrayList<String> listObjects = new ArrayList();
-        OntProperty p2 = modelAll.getOntProperty(property);
-
-        if (Character.isWhitespace(property.charAt(0)) || Character.isWhitespace(property.charAt(property.length() - 1))) {
-            throw new InvalidParameterException("The property has Leading/Trailing Whitespaces: \"" + property + "\"");
-        } else if (property == null || p2 == null) {
+        checkUri(property, "property");
+        List<String> objects = index.listObjects(property);
+        if (objects == null) {
             throw new NullPointerException("The property is null: " + property);
+        }
+        listObjects.addAll(objects);
+        metrics.time(ReasonerMetrics.Operation.LIST_OBJECTS, System.nanoTime() - start);
+        return listObjects;
+    }
+
+    /**
+     * Return all properties that can link instances of a class to instances
+     * of another: the properties of {@link #listProperties(String)} of the
+     * subject whose {@link #listObjects(String)} include the object. The
+     * answer is precomputed as bitsets over the classes and properties of the
+     * loaded schemas, so no property needs to be asked for its objects.
+     *
+     * @param subject the subject class
+     * @param object the object class
+     * @return An arrayList with the properties linking the subject to the
+     * object, empty if a class is unknown
+     * @throws InvalidParameterException if a class has leading/trailing
+     * whitespaces
+     */
+    public ArrayList<String> listLinkingProperties(String subject, String object) throws InvalidParameterException {
+        long start = System.nanoTime();
+        checkBatch(Arrays.asList(subject, object), "class");
+        ArrayList<String> linking = new ArrayList<String>(index.listLinkingProperties(subject, object));
+        metrics.time(ReasonerMetrics.Operation.LIST_LINKING_PROPERTIES, System.nanoTime() - start);
+        return linking;
+    }
+
+    /**
+     * Completes a text to the classes and properties of the loaded schemas
+     * whose local name, prefixed name or rdfs:label (in any language) starts
+     * with it, ignoring case. Words inside the names and labels match too, so
+     * "entity" finds E1_CRM_Entity. The best matches come first: exact
+     * matches, then matches on the local name, the prefixed name, a label and
+     * an inner word, shorter names before longer ones.
+     *
+     * @param text what was typed
+     * @param limit the maximum number of results
+     * @return the URIs of at most limit classes and properties, best first
+     */
+    public List<String> complete(String text, int limit) {
+        long start = System.nanoTime();
+        List<String> result = completer.complete(text, limit, false);
+        metrics.time(ReasonerMetrics.Operation.COMPLETE, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Like {@link #complete(String, int)}, for the classes only.
+     *
+     * @param text what was typed
+     * @param limit the maximum number of results
+     * @return the URIs of at most limit classes, best first
+     */
+    public List<String> completeClasses(String text, int limit) {
+        long start = System.nanoTime();
+        List<String> result = completer.complete(text, limit, true);
+        metrics.time(ReasonerMetrics.Operation.COMPLETE, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Like {@link #complete(String, int)}, among the properties
+     * {@link #listProperties(String)} returns for a subject.
+     *
+     * @param subject the class URI
+     * @param text what was typed
+     * @param limit the maximum number of results
+     * @return the URIs of at most limit properties, best first; none if the
+     * subject is unknown
+     */
+    public List<String> completeProperties(String subject, String text, int limit) {
+        long start = System.nanoTime();
+        TermCompleter terms = completer;
+        int id = terms.index.getDictionary().id(subject);
+        List<String> result = id < 0 ? Collections.<String>emptyList()
+                : terms.complete(text, limit, terms.index.listPropertyIds(id));
+        metrics.time(ReasonerMetrics.Operation.COMPLETE, System.nanoTime() - start);
+        return result;
+    }
 
+    /**
+     * Like {@link #complete(String, int)}, among the objects
+     * {@link #listObjects(String)} returns for a property.
+     *
+     * @param property the property URI
+     * @param text what was typed
+     * @param limit the maximum number of results
+     * @return the URIs of at most limit objects, best first; none if the
+     * property is unknown
+     */
+    public List<String> completeObjects(String property, String text, int limit) {
+        long start = System.nanoTime();
+        TermCompleter terms = completer;
+        int id = terms.index.getDictionary().id(property);
+        int[] objects = id < 0 ? null : terms.index.listObjectIds(id);
+        List<String> result = objects == null ? Collections.<String>emptyList()
+                : terms.complete(text, limit, objects);
+        metrics.time(ReasonerMetrics.Operation.COMPLETE, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Runs a read-only SPARQL SELECT on the loaded schemas (with the
+     * inferences of the reasoning profile). The query is compiled once per
+     * process and cached, so running the same text again only binds its
+     * variables.
+     *
+     * @param sparql a SELECT query
+     * @param bindings the URIs some variables are bound to, by variable name
+     * (without the leading ?)
+     * @return a row per solution, mapping every bound variable to a URI, a
+     * blank node label or the lexical form of a literal
+     * @throws com.hp.hpl.jena.query.QueryParseException if the text is not a
+     * query
+     * @throws InvalidParameterException if it is not a SELECT, or a binding
+     * has leading/trailing whitespaces
+     */
+    public List<Map<String, String>> select(String sparql, Map<String, String> bindings) {
+        return select(PreparedQuery.compile(sparql), bindings);
+    }
+
+    /**
+     * Runs a compiled SELECT on the loaded schemas, like
+     * {@link #select(String, Map)}.
+     *
+     * @param query the query
+     * @param bindings the URIs some variables are bound to
+     * @return a row per solution
+     */
+    public List<Map<String, String>> select(PreparedQuery query, Map<String, String> bindings) {
+        Queried queried = queried();
+        long start = System.nanoTime();
+        List<Map<String, String>> rows;
+        synchronized (queried.lock) {
+            rows = query.select(queried.model, bindings);
         }
-        //   try {
-//        String query = "select ?range \n"
-//                + "where {\n"
-//                + "<" + property + "> <" + RDFS.range + "> ?range .\n"
-//                + "}                                                    ";
-        //    StmtIterator it = modelAll.listStatements(p, RDFS.range, (RDFNode) null);
-        try {
+        metrics.time(ReasonerMetrics.Operation.QUERY, System.nanoTime() - start);
+        return rows;
+    }
+
+    /**
+     * Runs a read-only SPARQL ASK on the loaded schemas, like
+     * {@link #select(String, Map)}.
+     *
+     * @param sparql an ASK query
+     * @param bindings the URIs some variables are bound to
+     * @return the answer
+     */
+    public boolean ask(String sparql, Map<String, String> bindings) {
+        Queried queried = queried();
+        PreparedQuery query = PreparedQuery.compile(sparql);
+        long start = System.nanoTime();
+        boolean answer;
+        synchronized (queried.lock) {
+            answer = query.ask(queried.model, bindings);
+        }
+        metrics.time(ReasonerMetrics.Operation.QUERY, System.nanoTime() - start);
+        return answer;
+    }
+
+    /**
+     * The model the queries run on, loaded again the first time if the
+     * schemas were restored from a snapshot, with the lock of its chain.
+     * Loading another schema replaces it but does not change it, so it can be
+     * queried after the lock of this reasoner is released.
+     */
+    private synchronized Queried queried() {
+        restoreSnapshot();
+        return new Queried(modelAll, SchemaCache.Entry.lock(current, modelAll));
+    }
+
+    /**
+     * A model to query and the lock it is queried under.
+     */
+    private static final class Queried {
+
+        final OntModel model;
+        final Object lock;
+
+        Queried(OntModel model, Object lock) {
+            this.model = model;
+            this.lock = lock;
+        }
+    }
+
+    /**
+     * The model a chain of schemas starts on: an empty Pellet model, which
+     * supplies the built-in OWL vocabulary. Every chain gets its own, so that
+     * the chains share no Pellet model and can be queried at the same time.
+     */
+    private static OntModel emptyModel() {
+        return ModelFactory.createOntologyModel(PelletReasonerFactory.THE_SPEC, null);
+    }
+
+    /**
+     * Return the properties of several classes at once, like calling
+     * {@link #listProperties(String)} for each of them. All the lookups are
+     * answered from the same snapshot of the loaded schemas; large batches are
+     * split between the available cores.
+     *
+     * @param subjects the class URIs
+     * @return the properties of every subject, in the iteration order of the
+     * subjects; the lists are shared and unmodifiable
+     * @throws InvalidParameterException if a subject has leading/trailing
+     * whitespaces
+     */
+    public Map<String, List<String>> listProperties(Collection<String> subjects) throws InvalidParameterException {
+        checkBatch(subjects, "subject");
+        return lookup(index, subjects, false);
+    }
+
+    /**
+     * Return the objects of several properties at once, like calling
+     * {@link #listObjects(String)} for each of them. All the lookups are
+     * answered from the same snapshot of the loaded schemas; large batches are
+     * split between the available cores.
+     *
+     * @param properties the property URIs
+     * @return the objects of every property, in the iteration order of the
+     * properties; the lists are shared and unmodifiable. Properties unknown to
+     * the loaded schemas have no entry.
+     * @throws InvalidParameterException if a property has leading/trailing
+     * whitespaces
+     */
+    public Map<String, List<String>> listObjects(Collection<String> properties) throws InvalidParameterException {
+        checkBatch(properties, "property");
+        return lookup(index, properties, true);
+    }
 
-            // com.hp.hpl.jena.query.Query q = QueryFactory.create(query);
-            // Create a SPARQL-DL query execution for the given query and
-            // ontology model
-            // QueryExecution qe = QueryExecutionFactory.create(q, modelAll);
-            // We want to execute a SELECT query, do it, and return the result set
-//                ResultSet rs = qe.execSelect();
-//                RDFNode range = null;
-//                if (rs.hasNext()) {
-//                    QuerySolution s = rs.next();
-//                    range = s.get("range");
-//                    System.out.println("r: " + range);
-//                }
-            // Print the query for better understanding
-            ExtendedIterator it = p2.listSuperProperties(true);
-            List<Property> list = new ArrayList<Property>();
-            while (it.hasNext()) {
-                Property node = (Property) it.next();
-                list.add(node);
+    static void checkBatch(Collection<String> uris, String name) {
+        for (String uri : uris) {
+            checkUri(uri, name);
+        }
+    }
+
+    /**
+     * Rejects a null URI, then an empty one, then one with leading/trailing
+     * whitespaces, before anything is looked up.
+     */
+    static void checkUri(String uri, String name) {
+        if (uri == null) {
+            throw new NullPointerException("The " + name + " is null: " + uri);
+        } else if (uri.isEmpty()) {
+            throw new InvalidParameterException("The " + name + " is empty");
+        } else if (Character.isWhitespace(uri.charAt(0)) || Character.isWhitespace(uri.charAt(uri.length() - 1))) {
+            throw new InvalidParameterException("The " + name + " has Leading/Trailing Whitespaces: \"" + uri + "\"");
+        }
+    }
+
+    /**
+     * Looks up a batch in one index, in parallel when it is large enough for
+     * the hand-off to pay off.
+     */
+    private static Map<String, List<String>> lookup(final SchemaIndex index, Collection<String> uris, final boolean objects) {
+        final List<String> keys = new ArrayList<String>(uris);
+        int chunks = Math.min(Runtime.getRuntime().availableProcessors(), keys.size() / BATCH_CHUNK);
+        if (chunks <= 1) {
+            return lookup(index, keys, objects, new LinkedHashMap<String, List<String>>(keys.size() * 2));
+        }
+        List<Future<Map<String, List<String>>>> parts = new ArrayList<Future<Map<String, List<String>>>>();
+        int size = (keys.size() + chunks - 1) / chunks;
+        for (int from = 0; from < keys.size(); from += size) {
+            final List<String> chunk = keys.subList(from, Math.min(keys.size(), from + size));
+            parts.add(batchExecutor().submit(new Callable<Map<String, List<String>>>() {
+                @Override
+                public Map<String, List<String>> call() {
+                    return lookup(index, chunk, objects, new HashMap<String, List<String>>(chunk.size() * 2));
+                }
+            }));
+        }
+        Map<String, List<String>> parsed = new HashMap<String, List<String>>(keys.size() * 2);
+        try {
+            for (Future<Map<String, List<String>>> part : parts) {
+                parsed.putAll(part.get());
             }
-//                //remove super proprties to get the direct range
-//                //otherwise we get also the range of the super proprties
-            for (Property list1 : list) {
-                p2.removeSuperProperty(list1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        //keep the order of the request
+        Map<String, List<String>> result = new LinkedHashMap<String, List<String>>(keys.size() * 2);
+        for (String key : keys) {
+            List<String> value = parsed.get(key);
+            if (value != null) {
+                result.put(key, value);
             }
-            RDFNode range = p2.getRange();
-            if (range != null) {
-                //   RDFNode node = (RDFNode) it.next().getObject();
-                //  listObjects.add(node.toString());
-                listObjects.add(range.toString());
-                OntClass objectClass = modelAll.getOntClass(range.toString());
-                if (objectClass != null) {
-                    ExtendedIterator<OntClass> listSubClasses = objectClass.listSubClasses();
-                    while (listSubClasses.hasNext()) {
-                        OntClass subClass = listSubClasses.next();
-                        listObjects.add(subClass.toString());
-                    }
-                }
-                // Re-adding the removed SuperPropertes
-                for (Property list1 : list) {
-                	p2.addSuperProperty(list1);
-                }
+        }
+        return result;
+    }
+
+    private static Map<String, List<String>> lookup(SchemaIndex index, List<String> keys, boolean objects,
+            Map<String, List<String>> result) {
+        for (String key : keys) {
+            List<String> value = objects ? index.listObjects(key) : index.listProperties(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
 
-            } else {
-                for (Property list1 : list) {
-                    p2.addSuperProperty(list1);
+    private static synchronized ExecutorService batchExecutor() {
+        if (batchExecutor == null) {
+            batchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "reasoner-batch");
+                    thread.setDaemon(true);
+                    return thread;
                 }
-                //Return also the ranges of the super properties of property
-                //For example at skos prefLabel did not have declared the edfs:range but it 
-                //was subproperty of label. So we should return the range of label as a result.
-                StmtIterator it2 = modelAll.listStatements(p2, RDFS.subPropertyOf, (RDFNode) null);
-
-                while (it2.hasNext()) {
-                    RDFNode node = (RDFNode) it2.next().getObject();
-                    OntClass subProperty = modelAll.getOntClass(node.toString());
-                    if (subProperty != null) {
-                        StmtIterator rangeClasses = modelAll.listStatements(subProperty, RDFS.range, (RDFNode) null);
-
-                        while (rangeClasses.hasNext()) {
-                            RDFNode node2 = (RDFNode) rangeClasses.next().getObject();
-                            listObjects.add(node2.toString());
-                        }
+            });
+        }
+        return batchExecutor;
+    }
+
+    static synchronized ExecutorService loadExecutor() {
+        if (loadExecutor == null) {
+            try {
+                //Java 21 and later, while the library is built for older versions
+                loadExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                loadExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "reasoner-load");
+                        thread.setDaemon(true);
+                        return thread;
                     }
-                }
+                });
             }
-        } catch (QueryParseException ex) {
-            throw new QueryParseException("Error parssing query: " + ex.getMessage(), ex.getLine(), ex.getColumn());
-        } catch (Exception e) {
-            throw new Exception("Error occured " + e.getMessage());
-        }
-
-        //remove duplicates
-        Set setItems = new LinkedHashSet(listObjects);
-        listObjects.clear();
-        listObjects.addAll(setItems);
-        //sort list
-        Collections.sort(listObjects);
-        /*    for (String prop : listObjects) {
-         System.out.println(prop);
-         }*/
-//        } catch (Exception e) {
-//            e.printStackTrace();
-//            System.out.println("exception property " + property);
-//        }
-        return listObjects;
+        }
+        return loadExecutor;
     }
 
-    private static void disableLogging() {
-        List<Logger> loggers = Collections.<Logger>list(LogManager.getCurrentLoggers());
-        loggers.add(LogManager.getRootLogger());
-        for (Logger logger : loggers) {
-            logger.setLevel(Level.OFF);
+    /**
+     * Replaces the current model with a fully built one and publishes its
+     * snapshot, cancelling the consistency check of the replaced one. Nothing
+     * is replaced before the entry is complete, so a failure leaves the
+     * previous schema in place.
+     */
+    private void publish(SchemaCache.Entry entry, String key) {
+        if (consistencyCheck != null && consistencyCheck.entry != entry) {
+            consistencyCheck.cancel(false);
+            consistencyCheck = null;
         }
+        if (entry.model != null) {
+            modelAll = entry.model;
+        }
+        modelKey = key;
+        current = entry;
+        index = entry.index;
+        completer = entry.completer();
+    }
 
+    /**
+     * Return the precomputed index of the loaded schemas. Its lists are shared
+     * and unmodifiable, so unlike the methods above no copy is made per call.
+     *
+     * @return the index of the schemas loaded so far
+     */
+    public SchemaIndex getSchemaIndex() {
+        return index;
+    }
+
+    /**
+     * Turns the log4j logging (of Jena, Pellet and anything else in the
+     * process) on or off. The first reasoner created turns it off, unless
+     * this was called before.
+     *
+     * @param enabled false to discard every log4j event
+     */
+    public static synchronized void setLoggingEnabled(boolean enabled) {
+        //the threshold also covers the loggers created later on
+        LogManager.getLoggerRepository().setThreshold(enabled ? Level.ALL : Level.OFF);
+        loggingConfigured = true;
+    }
+
+    private static synchronized void configureLogging() {
+        if (!loggingConfigured) {
+            setLoggingEnabled(false);
+        }
     }
 
 }
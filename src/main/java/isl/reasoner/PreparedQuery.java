@@ -0,0 +1,234 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only (SELECT or ASK) SPARQL query, parsed once. Variables are bound
+ * to URIs when the query is run instead of being spliced into its text, so
+ * the same compiled query serves every lookup and no URI can change its
+ * meaning.
+ *
+ * Compiled queries are kept in a process-wide cache keyed by their text, so
+ * {@link #compile(String)} parses a query only the first time it sees it. A
+ * compiled query is never modified and can be run from several threads.
+ */
+public final class PreparedQuery {
+
+    private static final int CACHE_SIZE = 256;
+
+    //guarded by itself, the compiled queries, least recently used first
+    private static final LinkedHashMap<String, PreparedQuery> CACHE = new LinkedHashMap<String, PreparedQuery>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedQuery> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private static long hits;
+    private static long misses;
+
+    private final String text;
+    private final Query query;
+    private final List<String> variables;
+
+    private PreparedQuery(String text) {
+        this.text = text;
+        this.query = QueryFactory.create(text);
+        if (!query.isSelectType() && !query.isAskType()) {
+            throw new InvalidParameterException("Only SELECT and ASK queries can be run: " + text);
+        }
+        //computed now, so running the query never changes it
+        query.setResultVars();
+        this.variables = Collections.unmodifiableList(new ArrayList<String>(query.getResultVars()));
+    }
+
+    /**
+     * Return the compiled query of a text, parsing it if it is not cached.
+     *
+     * @param sparql a SELECT or ASK query
+     * @return the compiled query
+     * @throws com.hp.hpl.jena.query.QueryParseException if the text is not a
+     * query
+     * @throws InvalidParameterException if the query is not a SELECT or ASK
+     */
+    public static PreparedQuery compile(String sparql) {
+        synchronized (CACHE) {
+            PreparedQuery prepared = CACHE.get(sparql);
+            if (prepared != null) {
+                hits++;
+                return prepared;
+            }
+            misses++;
+        }
+        PreparedQuery prepared = new PreparedQuery(sparql);
+        synchronized (CACHE) {
+            CACHE.put(sparql, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * @return how many compilations were answered from the cache
+     */
+    public static long getCacheHits() {
+        synchronized (CACHE) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return how many queries were parsed
+     */
+    public static long getCacheMisses() {
+        synchronized (CACHE) {
+            return misses;
+        }
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the variables of the results of a SELECT
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    public boolean isAsk() {
+        return query.isAskType();
+    }
+
+    /**
+     * Runs a SELECT on a model. The caller must make sure nothing changes
+     * the model meanwhile.
+     *
+     * @param model the model to query
+     * @param bindings the URIs some variables are bound to, by variable name
+     * (without the leading ?)
+     * @return a row per solution, mapping every bound variable to a URI, a
+     * blank node label or the lexical form of a literal
+     */
+    public List<Map<String, String>> select(Model model, Map<String, String> bindings) {
+        if (isAsk()) {
+            throw new InvalidParameterException("Not a SELECT query: " + text);
+        }
+        List<Map<String, String>> rows = new ArrayList<Map<String, String>>();
+        QueryExecution execution = execution(model, bindings);
+        try {
+            ResultSet results = execution.execSelect();
+            while (results.hasNext()) {
+                QuerySolution solution = results.next();
+                Map<String, String> row = new LinkedHashMap<String, String>();
+                for (Iterator<String> names = solution.varNames(); names.hasNext();) {
+                    String name = names.next();
+                    RDFNode value = solution.get(name);
+                    if (value != null) {
+                        row.put(name, toString(value));
+                    }
+                }
+                rows.add(row);
+            }
+        } finally {
+            execution.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Runs an ASK on a model, like {@link #select(Model, Map)}.
+     *
+     * @param model the model to query
+     * @param bindings the URIs some variables are bound to
+     * @return the answer
+     */
+    public boolean ask(Model model, Map<String, String> bindings) {
+        if (!isAsk()) {
+            throw new InvalidParameterException("Not an ASK query: " + text);
+        }
+        QueryExecution execution = execution(model, bindings);
+        try {
+            return execution.execAsk();
+        } finally {
+            execution.close();
+        }
+    }
+
+    /**
+     * Creates the execution of the query on a model with some variables
+     * bound, for the callers that want the nodes of the results. The caller
+     * closes it.
+     */
+    QueryExecution execution(Model model, Map<String, String> bindings) {
+        if (bindings.isEmpty()) {
+            return QueryExecutionFactory.create(query, model);
+        }
+        QuerySolutionMap initial = new QuerySolutionMap();
+        for (Map.Entry<String, String> binding : bindings.entrySet()) {
+            String uri = binding.getValue();
+            if (uri == null) {
+                throw new NullPointerException("The value of ?" + binding.getKey() + " is null");
+            } else if (uri.isEmpty() || Character.isWhitespace(uri.charAt(0)) || Character.isWhitespace(uri.charAt(uri.length() - 1))) {
+                throw new InvalidParameterException("The value of ?" + binding.getKey() + " has Leading/Trailing Whitespaces: \"" + uri + "\"");
+            }
+            initial.add(binding.getKey(), ResourceFactory.createResource(uri));
+        }
+        return QueryExecutionFactory.create(query, model, initial);
+    }
+
+    private static String toString(RDFNode node) {
+        if (node.isURIResource()) {
+            return node.asResource().getURI();
+        } else if (node.isLiteral()) {
+            return node.asLiteral().getLexicalForm();
+        }
+        return "_:" + node.asResource().getId().getLabelString();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
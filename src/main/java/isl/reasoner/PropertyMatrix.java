@@ -0,0 +1,122 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+/**
+ * Which properties can link a class to another, as two bit matrices over the
+ * ids of a {@link SchemaIndex}: for every subject, the properties that can be
+ * applied to it, and for every object, the properties it is an allowed
+ * object of. The columns are the properties with known objects, numbered
+ * densely in the order of their URIs, so the properties linking two classes
+ * are the intersection of two rows, read in order.
+ */
+final class PropertyMatrix {
+
+    private static final int[] NONE = new int[0];
+
+    //the dictionary id of every column
+    private final int[] properties;
+    //the rows by dictionary id, null where no bit is set
+    private final long[][] bySubject;
+    private final long[][] byObject;
+
+    /**
+     * Builds the matrices of the tables of an index.
+     *
+     * @param size the size of the dictionary of the index
+     * @param propertiesById the properties of every subject, by id
+     * @param objectsById the objects of every property, by id
+     */
+    PropertyMatrix(int size, TermList[] propertiesById, TermList[] objectsById) {
+        int[] column = new int[size];
+        int columns = 0;
+        for (int id = 0; id < size; id++) {
+            column[id] = objectsById[id] == null ? -1 : columns++;
+        }
+        properties = new int[columns];
+        int words = (columns + 63) >>> 6;
+        bySubject = new long[size][];
+        byObject = new long[size][];
+        for (int id = 0; id < size; id++) {
+            if (column[id] >= 0) {
+                properties[column[id]] = id;
+                for (int object : objectsById[id].sharedIds()) {
+                    set(byObject, object, words, column[id]);
+                }
+            }
+            if (propertiesById[id] != null) {
+                for (int property : propertiesById[id].sharedIds()) {
+                    if (column[property] >= 0) {
+                        set(bySubject, id, words, column[property]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void set(long[][] rows, int row, int words, int bit) {
+        if (rows[row] == null) {
+            rows[row] = new long[words];
+        }
+        rows[row][bit >>> 6] |= 1L << bit;
+    }
+
+    /**
+     * @param subject the id of a class
+     * @param object the id of a class
+     * @return the ids of the properties of the subject whose objects include
+     * the object, in increasing order
+     */
+    int[] linking(int subject, int object) {
+        long[] subjectRow = row(bySubject, subject);
+        long[] objectRow = row(byObject, object);
+        if (subjectRow == null || objectRow == null) {
+            return NONE;
+        }
+        int count = 0;
+        for (int w = 0; w < subjectRow.length; w++) {
+            count += Long.bitCount(subjectRow[w] & objectRow[w]);
+        }
+        if (count == 0) {
+            return NONE;
+        }
+        int[] ids = new int[count];
+        int next = 0;
+        for (int w = 0; w < subjectRow.length; w++) {
+            long bits = subjectRow[w] & objectRow[w];
+            while (bits != 0) {
+                ids[next++] = properties[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+        }
+        return ids;
+    }
+
+    private static long[] row(long[][] rows, int id) {
+        return id >= 0 && id < rows.length ? rows[id] : null;
+    }
+}
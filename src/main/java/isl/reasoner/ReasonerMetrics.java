@@ -0,0 +1,115 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+/**
+ * Receives the measurements of an {@link OntologyReasoner}: how long its
+ * loading phases and query methods take, how large the loaded schemas are and
+ * how often they are found in the {@link SchemaCache}. Implementations are
+ * called from several threads at once and must be fast; see
+ * {@link InMemoryMetrics} for one that keeps everything in memory.
+ */
+public interface ReasonerMetrics {
+
+    /**
+     * What is timed.
+     */
+    enum Operation {
+
+        /**
+         * Reading a schema from a URL or a file.
+         */
+        FETCH,
+        /**
+         * Parsing a schema.
+         */
+        PARSE,
+        /**
+         * Preparing (classifying) a schema and indexing it.
+         */
+        CLASSIFY,
+        /**
+         * Checking the consistency of a schema.
+         */
+        CONSISTENCY,
+        LIST_PROPERTIES,
+        LIST_OBJECTS,
+        GET_ALL_CLASSES,
+        /**
+         * Listing the properties linking two classes.
+         */
+        LIST_LINKING_PROPERTIES,
+        /**
+         * Completing a term, in any of the complete methods.
+         */
+        COMPLETE,
+        /**
+         * Running a SPARQL query on the loaded schemas.
+         */
+        QUERY
+    }
+
+    /**
+     * Records nothing; the default of every reasoner.
+     */
+    ReasonerMetrics NOOP = new ReasonerMetrics() {
+        @Override
+        public void time(Operation operation, long nanos) {
+        }
+
+        @Override
+        public void schemaLoaded(long triples, int classes) {
+        }
+
+        @Override
+        public void cacheLookup(boolean hit) {
+        }
+    };
+
+    /**
+     * Records how long an operation took.
+     *
+     * @param operation the operation
+     * @param nanos its duration in nanoseconds
+     */
+    void time(Operation operation, long nanos);
+
+    /**
+     * Records the size of a newly classified schema.
+     *
+     * @param triples the statements of the schema
+     * @param classes the classes of the schemas loaded so far
+     */
+    void schemaLoaded(long triples, int classes);
+
+    /**
+     * Records a lookup in the schema cache.
+     *
+     * @param hit true if the schema was found
+     */
+    void cacheLookup(boolean hit);
+}
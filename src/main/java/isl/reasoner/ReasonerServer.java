@@ -0,0 +1,380 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the loaded schemas of this process to {@link RemoteReasoner}s in
+ * other processes, over the HTTP server of the JDK. The schemas are classified
+ * once, here, and the clients keep no model at all.
+ *
+ * The served schemas are the reasoners given to {@link #host(String,
+ * SchemaQueries)} and, when the server is built with one, the sets of a
+ * {@link SchemaRegistry}, loaded on their first request. Every request names
+ * the schemas with its schema parameter and, for the sets of a registry,
+ * optionally a version (the last registered one by default):
+ * <pre>
+ * GET  /classes?schema=crm                 getAllClasses()
+ * GET  /properties?schema=crm&amp;uri=...      listProperties(subject)
+ * GET  /objects?schema=crm&amp;uri=...         listObjects(property)
+ * GET  /properties?schema=crm&amp;uri=...&amp;object=...
+ *                                          listLinkingProperties(subject, object)
+ * POST /properties?schema=crm              listProperties(subjects)
+ * POST /objects?schema=crm                 listObjects(properties)
+ * </pre>
+ * The protocol is plain UTF-8 text. A batch request has one URI per line; a
+ * list is answered with one URI per line and a batch with a "uri TAB count"
+ * line for every answered URI, followed by its count values. Answers larger
+ * than {@value #GZIP_MIN_BYTES} bytes are gzipped for the clients that accept
+ * it. Errors are answered with 400 (invalid parameters), 404 (unknown schemas)
+ * or 500, and the class and message of the exception on two lines.
+ * Connections are kept alive between requests.
+ *
+ * The JDK server writes the headers and the body of an answer apart, so
+ * without TCP_NODELAY every kept-alive request waits for a delayed ACK (about
+ * 40 ms on Linux). Start the JVM with -Dsun.net.httpserver.nodelay=true; the
+ * JDK reads the property once, the first time any of its HTTP servers is
+ * created, so setting it later has no effect.
+ */
+public final class ReasonerServer {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static final int GZIP_MIN_BYTES = 1024;
+
+    private final InetSocketAddress address;
+    private final SchemaRegistry registry;
+    private final Map<String, SchemaQueries> hosted = new ConcurrentHashMap<String, SchemaQueries>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private int threads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Creates a server for the reasoners given to {@link #host(String,
+     * SchemaQueries)}.
+     *
+     * @param address the address to listen to; port 0 picks a free port
+     */
+    public ReasonerServer(InetSocketAddress address) {
+        this(address, null);
+    }
+
+    /**
+     * Creates a server for the sets of a registry, and for the reasoners given
+     * to {@link #host(String, SchemaQueries)}.
+     *
+     * @param address the address to listen to; port 0 picks a free port
+     * @param registry the registry of the served sets, or null
+     */
+    public ReasonerServer(InetSocketAddress address, SchemaRegistry registry) {
+        this.address = address;
+        this.registry = registry;
+    }
+
+    /**
+     * Serves a reasoner under a name, hiding the set of the registry with the
+     * same name.
+     *
+     * @param name the schema name of the requests
+     * @param reasoner a loaded reasoner
+     */
+    public void host(String name, SchemaQueries reasoner) {
+        if (reasoner == null) {
+            throw new NullPointerException("The reasoner is null");
+        }
+        hosted.put(name, reasoner);
+    }
+
+    /**
+     * Stops serving a reasoner given to {@link #host(String, SchemaQueries)}.
+     *
+     * @param name its name
+     * @return false if no reasoner was served under this name
+     */
+    public boolean unhost(String name) {
+        return hosted.remove(name) != null;
+    }
+
+    /**
+     * Changes the number of threads answering the requests, twice the cores
+     * and at least 4 by default. Takes effect on the next start.
+     *
+     * @param threads the number of threads
+     */
+    public synchronized void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Starts listening.
+     *
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalStateException if the server is already started
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("The server is already started");
+        }
+        HttpServer created = HttpServer.create(address, 0);
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "reasoner-server");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        created.setExecutor(executor);
+        created.createContext("/", new Handler());
+        created.start();
+        server = created;
+    }
+
+    /**
+     * Stops listening, waiting for the requests being answered.
+     *
+     * @param delaySeconds the longest wait for the requests being answered
+     */
+    public synchronized void stop(int delaySeconds) {
+        if (server != null) {
+            server.stop(delaySeconds);
+            executor.shutdown();
+            server = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the port the server listens to, once started
+     */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("The server is not started");
+        }
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return how many requests were answered
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return how many of the requests were answered with an error
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    private SchemaQueries reasoner(String name, String version) throws IOException {
+        if (name == null) {
+            throw new InvalidParameterException("The schema is missing");
+        }
+        SchemaQueries reasoner = hosted.get(name);
+        if (reasoner != null) {
+            return reasoner;
+        } else if (registry == null) {
+            throw new IllegalArgumentException("Unknown schema set: " + name);
+        }
+        return version == null ? registry.get(name) : registry.get(name, version);
+    }
+
+    private final class Handler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            byte[] body;
+            int status;
+            try {
+                body = answer(exchange);
+                status = HttpURLConnection.HTTP_OK;
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                if (e instanceof InvalidParameterException || e instanceof NullPointerException) {
+                    status = HttpURLConnection.HTTP_BAD_REQUEST;
+                } else if (e instanceof IllegalArgumentException) {
+                    status = HttpURLConnection.HTTP_NOT_FOUND;
+                } else {
+                    status = HttpURLConnection.HTTP_INTERNAL_ERROR;
+                }
+                body = (e.getClass().getName() + "\n" + String.valueOf(e.getMessage()).replace('\n', ' ')).getBytes(UTF8);
+            }
+            respond(exchange, status, body);
+        }
+
+        private byte[] answer(HttpExchange exchange) throws Exception {
+            //read the whole request, so that the connection can be reused
+            String request = new String(read(exchange.getRequestBody()), UTF8);
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+            boolean batch = "POST".equals(method);
+            if (!batch && !"GET".equals(method)) {
+                throw new IllegalArgumentException("Unknown request: " + method + " " + path);
+            }
+            SchemaQueries reasoner;
+            if ("/classes".equals(path) && !batch) {
+                reasoner = reasoner(parameters.get("schema"), parameters.get("version"));
+                return list(reasoner.getAllClasses());
+            }
+            boolean objects = "/objects".equals(path);
+            if (!objects && !"/properties".equals(path)) {
+                throw new IllegalArgumentException("Unknown request: " + method + " " + path);
+            }
+            reasoner = reasoner(parameters.get("schema"), parameters.get("version"));
+            if (batch) {
+                List<String> uris = lines(request);
+                return batch(objects ? reasoner.listObjects(uris) : reasoner.listProperties(uris));
+            }
+            String uri = parameters.get("uri");
+            if (uri == null) {
+                throw new InvalidParameterException("The uri is missing");
+            }
+            String object = parameters.get("object");
+            if (objects) {
+                return list(reasoner.listObjects(uri));
+            }
+            return list(object == null ? reasoner.listProperties(uri) : reasoner.listLinkingProperties(uri, object));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "text/plain; charset=UTF-8");
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (body.length > GZIP_MIN_BYTES && accepted != null && accepted.contains("gzip")) {
+            ByteArrayOutputStream zipped = new ByteArrayOutputStream(body.length / 4);
+            GZIPOutputStream out = new GZIPOutputStream(zipped);
+            out.write(body);
+            out.close();
+            body = zipped.toByteArray();
+            headers.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] list(List<String> uris) {
+        StringBuilder text = new StringBuilder(uris.size() * 48);
+        for (String uri : uris) {
+            text.append(uri).append('\n');
+        }
+        return text.toString().getBytes(UTF8);
+    }
+
+    private static byte[] batch(Map<String, List<String>> answers) {
+        StringBuilder text = new StringBuilder(answers.size() * 256);
+        for (Map.Entry<String, List<String>> answer : answers.entrySet()) {
+            text.append(answer.getKey()).append('\t').append(answer.getValue().size()).append('\n');
+            for (String uri : answer.getValue()) {
+                text.append(uri).append('\n');
+            }
+        }
+        return text.toString().getBytes(UTF8);
+    }
+
+    /**
+     * Splits a text in lines, without the empty last line.
+     */
+    static List<String> lines(String text) {
+        List<String> lines = new ArrayList<String>();
+        int from = 0;
+        while (from < text.length()) {
+            int end = text.indexOf('\n', from);
+            if (end == -1) {
+                end = text.length();
+            }
+            lines.add(text.substring(from, end));
+            from = end + 1;
+        }
+        return lines;
+    }
+
+    private static Map<String, String> parameters(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                            URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    static byte[] read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.ontology.OntModelSpec;
+import org.mindswap.pellet.jena.PelletReasonerFactory;
+
+/**
+ * How much reasoning is done on a schema before it is indexed. The editor
+ * only needs the class and property hierarchies, the domains and the ranges,
+ * which the lighter profiles compute much faster and with much less memory
+ * than the full OWL-DL classification; they may however miss answers that
+ * follow from OWL axioms (equivalences, restrictions, inverses).
+ */
+public enum ReasoningProfile {
+
+    /**
+     * Full OWL-DL reasoning with Pellet (the default).
+     */
+    PELLET_DL,
+    /**
+     * The OWL-micro rule reasoner of Jena: RDFS plus the most common OWL
+     * constructs.
+     */
+    OWL_MICRO,
+    /**
+     * The RDFS rule reasoner of Jena.
+     */
+    RDFS,
+    /**
+     * No reasoner: the subclass, subproperty, domain and range closures are
+     * computed directly from the asserted statements. The consistency of
+     * the schema is not checked, it is always reported as consistent.
+     */
+    FAST;
+
+    /**
+     * @return the specification of the models of this profile
+     */
+    OntModelSpec spec() {
+        switch (this) {
+            case OWL_MICRO:
+                return OntModelSpec.OWL_MEM_MICRO_RULE_INF;
+            case RDFS:
+                return OntModelSpec.OWL_MEM_RDFS_INF;
+            case FAST:
+                return OntModelSpec.OWL_MEM;
+            default:
+                return PelletReasonerFactory.THE_SPEC;
+        }
+    }
+}
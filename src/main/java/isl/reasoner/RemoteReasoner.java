@@ -0,0 +1,252 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Answers the queries of a {@link SchemaQueries} with the schemas of a
+ * {@link ReasonerServer}, so that several processes share one classified copy
+ * of them. The connections to the server are kept alive and reused, and
+ * large answers are gzipped.
+ *
+ * The errors of the server are thrown as they would be by a local
+ * {@link OntologyReasoner} (InvalidParameterException, NullPointerException,
+ * IllegalArgumentException for unknown schemas); any other failure is thrown
+ * as an IOException. A client is thread safe.
+ */
+public final class RemoteReasoner implements SchemaQueries {
+
+    private final String url;
+    private final String schema;
+    private final String version;
+    private volatile int timeoutMillis = 10000;
+
+    /**
+     * Creates a client of the last version of a schema set.
+     *
+     * @param url the address of the server, e.g. http://host:8080/
+     * @param schema the name of the schemas on the server
+     */
+    public RemoteReasoner(String url, String schema) {
+        this(url, schema, null);
+    }
+
+    /**
+     * Creates a client of a version of a schema set.
+     *
+     * @param url the address of the server, e.g. http://host:8080/
+     * @param schema the name of the schemas on the server
+     * @param version the version of the set, or null for the last one
+     */
+    public RemoteReasoner(String url, String schema, String version) {
+        if (schema == null) {
+            throw new NullPointerException("The schema is null");
+        }
+        this.url = url.endsWith("/") ? url : url + "/";
+        this.schema = schema;
+        this.version = version;
+    }
+
+    /**
+     * Changes the connect and read timeout of the requests (10 seconds by
+     * default).
+     *
+     * @param timeoutMillis the timeout in milliseconds
+     */
+    public void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public ArrayList<String> getAllClasses() throws IOException {
+        return list(request("classes", null, null, null));
+    }
+
+    @Override
+    public ArrayList<String> listProperties(String subject) throws IOException {
+        if (subject == null) {
+            throw new NullPointerException("The subject is null: " + subject);
+        }
+        return list(request("properties", subject, null, null));
+    }
+
+    @Override
+    public ArrayList<String> listObjects(String property) throws IOException {
+        if (property == null) {
+            throw new NullPointerException("The property is null: " + property);
+        }
+        return list(request("objects", property, null, null));
+    }
+
+    @Override
+    public ArrayList<String> listLinkingProperties(String subject, String object) throws IOException {
+        OntologyReasoner.checkBatch(Arrays.asList(subject, object), "class");
+        return list(request("properties", subject, object, null));
+    }
+
+    @Override
+    public Map<String, List<String>> listProperties(Collection<String> subjects) throws IOException {
+        OntologyReasoner.checkBatch(subjects, "subject");
+        return batch(request("properties", null, null, body(subjects, "subject")));
+    }
+
+    @Override
+    public Map<String, List<String>> listObjects(Collection<String> properties) throws IOException {
+        OntologyReasoner.checkBatch(properties, "property");
+        return batch(request("objects", null, null, body(properties, "property")));
+    }
+
+    private static byte[] body(Collection<String> uris, String name) {
+        StringBuilder text = new StringBuilder(uris.size() * 48);
+        for (String uri : uris) {
+            if (uri.indexOf('\n') != -1) {
+                throw new InvalidParameterException("The " + name + " has Line breaks: \"" + uri + "\"");
+            }
+            text.append(uri).append('\n');
+        }
+        return text.toString().getBytes(ReasonerServer.UTF8);
+    }
+
+    /**
+     * Sends a request and returns the text of the answer, reading it to the
+     * end so that the connection goes back to the pool of kept-alive ones.
+     */
+    private String request(String path, String uri, String object, byte[] body) throws IOException {
+        StringBuilder address = new StringBuilder(url).append(path).append("?schema=").append(encode(schema));
+        if (version != null) {
+            address.append("&version=").append(encode(version));
+        }
+        if (uri != null) {
+            address.append("&uri=").append(encode(uri));
+        }
+        if (object != null) {
+            address.append("&object=").append(encode(object));
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(address.toString()).openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (body != null) {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "text/plain; charset=UTF-8");
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status == HttpURLConnection.HTTP_OK ? connection.getInputStream() : connection.getErrorStream();
+        String text = "";
+        if (in != null) {
+            if ("gzip".equals(connection.getContentEncoding())) {
+                in = new GZIPInputStream(in);
+            }
+            text = new String(ReasonerServer.read(in), ReasonerServer.UTF8);
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw failure(status, text, address);
+        }
+        return text;
+    }
+
+    /**
+     * Rebuilds the exception thrown on the server: the runtime ones are
+     * thrown, the others are returned as an IOException.
+     */
+    private static IOException failure(int status, String text, CharSequence address) {
+        int eol = text.indexOf('\n');
+        String type = eol == -1 ? "" : text.substring(0, eol);
+        String message = eol == -1 ? text : text.substring(eol + 1);
+        if (type.equals(InvalidParameterException.class.getName())) {
+            throw new InvalidParameterException(message);
+        } else if (type.equals(NullPointerException.class.getName())) {
+            throw new NullPointerException(message);
+        } else if (type.equals(IllegalArgumentException.class.getName())) {
+            throw new IllegalArgumentException(message);
+        }
+        return new IOException("Server returned HTTP response code: " + status + " for URL: " + address
+                + (message.isEmpty() ? "" : " (" + type + ": " + message + ")"));
+    }
+
+    private static ArrayList<String> list(String text) {
+        return new ArrayList<String>(ReasonerServer.lines(text));
+    }
+
+    private static Map<String, List<String>> batch(String text) throws IOException {
+        List<String> lines = ReasonerServer.lines(text);
+        Map<String, List<String>> answers = new LinkedHashMap<String, List<String>>(lines.size());
+        int i = 0;
+        while (i < lines.size()) {
+            String header = lines.get(i++);
+            int tab = header.lastIndexOf('\t');
+            int count;
+            try {
+                count = tab == -1 ? -1 : Integer.parseInt(header.substring(tab + 1));
+            } catch (NumberFormatException e) {
+                count = -1;
+            }
+            if (count < 0 || i + count > lines.size()) {
+                throw new IOException("Malformed answer of the server at line " + i + ": " + header);
+            }
+            answers.put(header.substring(0, tab), Collections.unmodifiableList(new ArrayList<String>(lines.subList(i, i + count))));
+            i += count;
+        }
+        return answers;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
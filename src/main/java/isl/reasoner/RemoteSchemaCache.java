@@ -0,0 +1,317 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * A disk cache of schemas downloaded over HTTP. A schema that was downloaded
+ * before is revalidated with a conditional GET (If-None-Match with its ETag,
+ * If-Modified-Since with its Last-Modified date) and read from disk when the
+ * server answers 304 Not Modified. When the server cannot be reached, or
+ * answers with a server error, the last good copy is used instead.
+ *
+ * Every URL is kept in two files named after its SHA-256: the contents
+ * (.body) and the validators (.properties). Both are written to temporary
+ * files and renamed, the validators last, so several processes can share the
+ * directory. The validators record the SHA-256 of the contents they describe:
+ * a body replaced without its validators (a process that stopped in between,
+ * or two that stored the same URL at once) is not trusted and is downloaded
+ * again.
+ */
+public final class RemoteSchemaCache {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private int timeoutMillis = 10000;
+    private long hits;
+    private long revalidations;
+    private long fetches;
+    private long fallbacks;
+
+    /**
+     * Creates a cache keeping its files in a directory, which is created if
+     * needed.
+     *
+     * @param directory the directory of the cache
+     */
+    public RemoteSchemaCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Changes the connect and read timeout of the requests (10 seconds by
+     * default).
+     *
+     * @param timeoutMillis the timeout in milliseconds
+     */
+    public synchronized void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public synchronized int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return how many times a schema was read from disk, after a 304 answer
+     * or because the server could not be reached
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return how many conditional requests were sent
+     */
+    public synchronized long getRevalidations() {
+        return revalidations;
+    }
+
+    /**
+     * @return how many times a schema was downloaded in full
+     */
+    public synchronized long getFetches() {
+        return fetches;
+    }
+
+    /**
+     * @return how many of the hits served the last good copy because the
+     * server could not be reached
+     */
+    public synchronized long getFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * Tells whether a location is served through this cache.
+     *
+     * @param location a URL or a file name
+     * @return true for http and https URLs
+     */
+    public static boolean isRemote(String location) {
+        String lower = location.toLowerCase();
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    /**
+     * Returns the contents of a URL, from disk if they have not changed since
+     * they were last downloaded.
+     *
+     * @param location an http or https URL
+     * @return the contents
+     * @throws IOException if the URL cannot be downloaded and there is no copy
+     * of it on disk
+     */
+    public byte[] get(String location) throws IOException {
+        String name = hash(location);
+        File body = new File(directory, name + ".body");
+        File meta = new File(directory, name + ".properties");
+        Properties validators = new Properties();
+        byte[] stored = null;
+        if (body.isFile() && meta.isFile()) {
+            try {
+                InputStream in = new FileInputStream(meta);
+                try {
+                    validators.load(in);
+                } finally {
+                    in.close();
+                }
+                stored = read(body);
+                if (!hash(stored).equals(validators.getProperty("sha256"))) {
+                    stored = null;
+                }
+            } catch (IOException e) {
+                stored = null;
+            }
+        }
+        boolean cached = stored != null;
+
+        HttpURLConnection connection;
+        int status;
+        try {
+            URLConnection opened = new URL(location).openConnection();
+            if (!(opened instanceof HttpURLConnection)) {
+                throw new IOException("Not an HTTP URL: " + location);
+            }
+            connection = (HttpURLConnection) opened;
+            synchronized (this) {
+                connection.setConnectTimeout(timeoutMillis);
+                connection.setReadTimeout(timeoutMillis);
+                if (cached) {
+                    revalidations++;
+                }
+            }
+            if (cached && validators.getProperty("etag") != null) {
+                connection.setRequestProperty("If-None-Match", validators.getProperty("etag"));
+            }
+            if (cached && validators.getProperty("lastModified") != null) {
+                connection.setRequestProperty("If-Modified-Since", validators.getProperty("lastModified"));
+            }
+            status = connection.getResponseCode();
+        } catch (IOException e) {
+            if (cached) {
+                return fallback(stored);
+            }
+            throw e;
+        }
+
+        try {
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached) {
+                synchronized (this) {
+                    hits++;
+                }
+                return stored;
+            }
+            if (status >= 500 && cached) {
+                return fallback(stored);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server returned HTTP response code: " + status + " for URL: " + location);
+            }
+            byte[] content;
+            try {
+                content = read(connection.getInputStream());
+            } catch (IOException e) {
+                if (cached) {
+                    return fallback(stored);
+                }
+                throw e;
+            }
+            synchronized (this) {
+                fetches++;
+            }
+            store(location, body, meta, content, connection);
+            return content;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private synchronized byte[] fallback(byte[] stored) {
+        hits++;
+        fallbacks++;
+        return stored;
+    }
+
+    /**
+     * Keeps a downloaded schema. Failing to write it only means it will be
+     * downloaded again.
+     */
+    private void store(String location, File body, File meta, byte[] content, HttpURLConnection connection) {
+        Properties validators = new Properties();
+        validators.setProperty("url", location);
+        validators.setProperty("sha256", hash(content));
+        if (connection.getHeaderField("ETag") != null) {
+            validators.setProperty("etag", connection.getHeaderField("ETag"));
+        }
+        if (connection.getHeaderField("Last-Modified") != null) {
+            validators.setProperty("lastModified", connection.getHeaderField("Last-Modified"));
+        }
+        try {
+            directory.mkdirs();
+            write(body, content);
+            ByteArrayOutputStream properties = new ByteArrayOutputStream();
+            validators.store(properties, null);
+            write(meta, properties.toByteArray());
+        } catch (IOException e) {
+            //served from the network, the copy is written again next time
+        }
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Cannot replace " + file);
+            }
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String hash(String location) {
+        return hash(location.getBytes(UTF8));
+    }
+
+    private static String hash(byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(content)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
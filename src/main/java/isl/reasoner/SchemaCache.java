@@ -0,0 +1,338 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.mindswap.pellet.jena.PelletInfGraph;
+
+/**
+ * A process-wide cache of classified schemas, shared by all the
+ * {@link OntologyReasoner} instances. Entries are keyed by the SHA-256 of the
+ * schema contents, the base URI its relative IRIs are resolved against, its
+ * syntax and reasoning profile, chained with the key of the schemas that
+ * were loaded before it, so loading the same files in the same order reuses
+ * the parsed and prepared model, its index and its consistency check.
+ *
+ * The cache is bounded by an (estimated) memory budget and evicts the least
+ * recently used entries first. Cached models are shared and must be treated
+ * as read-only.
+ */
+public final class SchemaCache {
+
+    /**
+     * Rough heap cost of one parsed triple, including Pellet's own copy of it.
+     */
+    static final long BYTES_PER_TRIPLE = 512;
+
+    private static final SchemaCache SHARED = new SchemaCache(256L * 1024 * 1024);
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long maxBytes;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache with the given memory budget.
+     *
+     * @param maxBytes the estimated heap the cached schemas may occupy; 0
+     * disables caching
+     */
+    public SchemaCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Return the cache shared by all the reasoners of this process
+     *
+     * @return the shared cache
+     */
+    public static SchemaCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Changes the memory budget, evicting entries if it is now exceeded.
+     *
+     * @param maxBytes the estimated heap the cached schemas may occupy; 0
+     * disables caching
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Removes all the entries. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Removes the entries that are not in use, keeping their counters.
+     *
+     * @param live the entries to keep
+     */
+    synchronized void retainAll(Set<Entry> live) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (!live.contains(entry)) {
+                usedBytes -= entry.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += entry.bytes;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            usedBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Computes the key of a schema.
+     *
+     * @param parentKey the key of the schemas loaded before it, or null
+     * @param content the contents of the schema
+     * @param base the base URI relative IRIs of the contents resolve
+     * against, or null if there is none
+     * @param lang the syntax of the contents (one of the values of the langs
+     * table)
+     * @param profile the reasoning applied to the schema
+     * @return a hex encoded SHA-256
+     */
+    static String key(String parentKey, byte[] content, String base, String lang, ReasoningProfile profile) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        Charset utf8 = Charset.forName("UTF-8");
+        if (parentKey != null) {
+            digest.update(parentKey.getBytes(utf8));
+        }
+        digest.update((byte) 0);
+        digest.update(profile.name().getBytes(utf8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(lang).getBytes(utf8));
+        digest.update((byte) 0);
+        //the same contents read against another base are other IRIs
+        digest.update((base == null ? "" : base).getBytes(utf8));
+        digest.update((byte) 0);
+        digest.update(content);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * A classified schema: the prepared model (with the models loaded before
+     * it chained in), its index and the prefixes declared by the schema file.
+     * The entry of the schemas loaded before it is its parent.
+     */
+    static final class Entry {
+
+        final OntModel model;
+        final SchemaIndex index;
+        final Map<String, String> prefixes;
+        final Entry parent;
+        final long bytes;
+        //indexed from the asserted statements until Pellet classifies the model
+        final boolean provisional;
+        //written under the Pellet lock, read without it by isChecked
+        private volatile Boolean consistent;
+        //built on the first publication of the entry
+        private TermCompleter completer;
+        //held (after the Pellet lock, if both are) by whoever uses the model,
+        //shared along a chain since every model reads the ones below it
+        final Object lock;
+
+        /**
+         * @param consistent the consistency of the model, or null if it is
+         * not checked yet
+         * @param provisional true if the index was computed from the asserted
+         * statements of a model that is not classified yet; such an entry is
+         * never cached
+         */
+        Entry(OntModel model, SchemaIndex index, Map<String, String> prefixes, Entry parent, long triples,
+                Boolean consistent, boolean provisional) {
+            this.provisional = provisional;
+            this.model = model;
+            this.index = index;
+            this.prefixes = Collections.unmodifiableMap(prefixes);
+            this.parent = parent;
+            this.bytes = triples * BYTES_PER_TRIPLE;
+            this.consistent = consistent;
+            this.lock = lock(parent, model);
+        }
+
+        /**
+         * An entry restored from a {@link SchemaSnapshot}: there is no model
+         * until the schema is parsed again.
+         */
+        Entry(SchemaSnapshot snapshot) {
+            this.model = null;
+            this.index = snapshot.index;
+            this.prefixes = snapshot.prefixes;
+            this.parent = null;
+            this.bytes = snapshot.bytes;
+            this.provisional = false;
+            this.consistent = snapshot.consistent;
+            this.lock = new Object();
+        }
+
+        /**
+         * Return the lock of the entry of a model loaded on top of another
+         * entry: the lock of its chain, or the model itself when it starts
+         * one. Pellet models are not thread safe, so the Pellet models of a
+         * chain are used by one thread at a time, while unrelated chains are
+         * queried at the same time.
+         *
+         * @param parent the entry the model is loaded on top of, or null
+         * @param model the model
+         */
+        static Object lock(Entry parent, OntModel model) {
+            return parent != null ? parent.lock : model;
+        }
+
+        /**
+         * Return the completer of the classes and properties of this entry,
+         * building it the first time.
+         */
+        synchronized TermCompleter completer() {
+            if (completer == null) {
+                completer = new TermCompleter(index, chainPrefixes());
+            }
+            return completer;
+        }
+
+        /**
+         * Return the prefixes of this entry and of the entries it was loaded
+         * on top of, which its index covers as well. The prefixes of the later
+         * schemas take precedence.
+         */
+        Map<String, String> chainPrefixes() {
+            Map<String, String> all = parent == null ? new HashMap<String, String>() : parent.chainPrefixes();
+            all.putAll(prefixes);
+            return all;
+        }
+
+        /**
+         * Tells whether the consistency of the model is already known, so
+         * that {@link #isConsistent()} returns at once.
+         */
+        boolean isChecked() {
+            return consistent != null;
+        }
+
+        /**
+         * Checks the consistency of the model once; later calls reuse the
+         * answer. Models without a reasoner are taken as consistent. The
+         * caller must hold {@link OntologyReasoner#PELLET_LOCK} and the lock
+         * of the entry.
+         */
+        boolean isConsistent() {
+            if (consistent == null) {
+                Graph graph = model.getGraph();
+                if (graph instanceof PelletInfGraph) {
+                    //the model of a provisional entry is not loaded into Pellet yet
+                    ((PelletInfGraph) graph).prepare(false);
+                    consistent = ((PelletInfGraph) graph).getKB().isConsistent();
+                } else if (graph instanceof InfGraph) {
+                    consistent = ((InfGraph) graph).validate().isValid();
+                } else {
+                    consistent = true;
+                }
+            }
+            return consistent;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import com.hp.hpl.jena.vocabulary.XSD;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the {@link SchemaIndex} of a schema from its statements, for the
+ * profiles other than {@link ReasoningProfile#PELLET_DL}. The classes,
+ * properties, domains and ranges are the ones the schema states; the class
+ * and property hierarchies are read from a model that may carry the
+ * entailments of a rule reasoner. Without a reasoner
+ * ({@link ReasoningProfile#FAST}) only the entailments the index needs are
+ * computed, straight from the statements:
+ * <ul>
+ * <li>the subclass closure of rdfs:subClassOf and owl:equivalentClass,</li>
+ * <li>the subproperty closure of rdfs:subPropertyOf and
+ * owl:equivalentProperty,</li>
+ * <li>the domains and ranges of every property, inherited from its
+ * superproperties and taken from its inverse (owl:inverseOf).</li>
+ * </ul>
+ * A property applies to a class if each of its domains is the class or one
+ * of its superclasses, and to each of its domains. The annotation properties apply to every class.
+ */
+final class SchemaClosure {
+
+    //the annotation properties built into OWL, which a reasoner would add
+    private static final List<String> BUILT_IN_ANNOTATIONS = Arrays.asList(
+            RDFS.label.getURI(), RDFS.comment.getURI(), RDFS.seeAlso.getURI(), RDFS.isDefinedBy.getURI(),
+            OWL.versionInfo.getURI(), OWL.priorVersion.getURI(), OWL.backwardCompatibleWith.getURI(),
+            OWL.incompatibleWith.getURI());
+
+    private static final List<Resource> CLASS_TYPES = Arrays.asList(RDFS.Class, OWL.Class);
+
+    private static final List<Resource> PROPERTY_TYPES = Arrays.asList(RDF.Property, OWL.ObjectProperty,
+            OWL.DatatypeProperty, OWL.AnnotationProperty, OWL.FunctionalProperty,
+            OWL.InverseFunctionalProperty, OWL.TransitiveProperty, OWL.SymmetricProperty);
+
+    private SchemaClosure() {
+    }
+
+    /**
+     * @param model the statements of the schema, with or without entailments
+     * @param asserted the statements of the schema
+     * @return the index of the schema
+     */
+    static SchemaIndex build(Model model, Model asserted) {
+        Set<String> classes = new LinkedHashSet<String>();
+        Set<String> properties = new LinkedHashSet<String>();
+        Set<String> annotationProperties = new LinkedHashSet<String>(BUILT_IN_ANNOTATIONS);
+        collectTerms(asserted, classes, properties, annotationProperties);
+
+        Map<String, Set<String>> superClasses = SchemaIndex.statementTable(model, RDFS.subClassOf);
+        addSymmetric(superClasses, SchemaIndex.statementTable(model, OWL.equivalentClass));
+        Map<String, Set<String>> superProperties = SchemaIndex.statementTable(model, RDFS.subPropertyOf);
+        addSymmetric(superProperties, SchemaIndex.statementTable(model, OWL.equivalentProperty));
+        //the reasoners also copy the domains and ranges to every superclass,
+        //which would make the most general classes accept every property
+        Map<String, Set<String>> domains = SchemaIndex.statementTable(asserted, RDFS.domain);
+        Map<String, Set<String>> ranges = SchemaIndex.statementTable(asserted, RDFS.range);
+
+        //the closures
+        Map<String, Set<String>> ancestors = closure(classes, superClasses);
+        Map<String, Set<String>> superPropertyClosure = closure(properties, superProperties);
+        Map<String, Set<String>> inheritedDomains = inherit(properties, domains, superPropertyClosure);
+        Map<String, Set<String>> inheritedRanges = inherit(properties, ranges, superPropertyClosure);
+        //the domain of a property is the range of its inverse and vice versa
+        Map<String, Set<String>> inverses = SchemaIndex.statementTable(model, OWL.inverseOf);
+        addSymmetric(inverses, new HashMap<String, Set<String>>(inverses));
+        Map<String, Set<String>> domainsOfInverses = new HashMap<String, Set<String>>();
+        Map<String, Set<String>> rangesOfInverses = new HashMap<String, Set<String>>();
+        for (Map.Entry<String, Set<String>> entry : inverses.entrySet()) {
+            for (String inverse : entry.getValue()) {
+                for (String range : SchemaIndex.get(inheritedRanges, inverse)) {
+                    put(domainsOfInverses, entry.getKey(), range);
+                }
+                for (String domain : SchemaIndex.get(inheritedDomains, inverse)) {
+                    put(rangesOfInverses, entry.getKey(), domain);
+                }
+            }
+        }
+        addAll(inheritedDomains, domainsOfInverses);
+        addAll(inheritedRanges, rangesOfInverses);
+
+        Map<String, List<String>> subClasses = new HashMap<String, List<String>>();
+        Map<String, List<String>> descendants = new HashMap<String, List<String>>();
+        for (String c : classes) {
+            descendants.put(c, new ArrayList<String>());
+        }
+        for (String c : classes) {
+            for (String ancestor : ancestors.get(c)) {
+                List<String> list = descendants.get(ancestor);
+                if (list != null) {
+                    list.add(c);
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : descendants.entrySet()) {
+            subClasses.put(entry.getKey(), SchemaIndex.sorted(entry.getValue()));
+        }
+
+        //the classes every property applies to
+        Map<String, List<String>> classProperties = new HashMap<String, List<String>>();
+        for (String c : classes) {
+            classProperties.put(c, new ArrayList<String>(annotationProperties));
+        }
+        for (String p : properties) {
+            //the subjects of a property are instances of all its domains
+            Set<String> applies = null;
+            for (String domain : SchemaIndex.get(inheritedDomains, p)) {
+                Set<String> instances = new HashSet<String>();
+                instances.add(domain);
+                List<String> subs = subClasses.get(domain);
+                if (subs != null) {
+                    instances.addAll(subs);
+                }
+                if (applies == null) {
+                    applies = instances;
+                } else {
+                    applies.retainAll(instances);
+                }
+            }
+            if (applies == null) {
+                continue;
+            }
+            //and the domains themselves, inherited ones included, are listed
+            //like the reasoner lists them
+            applies.addAll(SchemaIndex.get(inheritedDomains, p));
+            for (String c : applies) {
+                List<String> list = classProperties.get(c);
+                if (list != null) {
+                    list.add(p);
+                }
+            }
+        }
+        Map<String, List<String>> propertiesIndex = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : classProperties.entrySet()) {
+            propertiesIndex.put(entry.getKey(), SchemaIndex.sorted(entry.getValue()));
+        }
+
+        Map<String, List<String>> objects = new HashMap<String, List<String>>();
+        Set<String> allProperties = new LinkedHashSet<String>(properties);
+        allProperties.addAll(annotationProperties);
+        for (String p : allProperties) {
+            objects.put(p, SchemaIndex.listObjects(p, superPropertyClosure, inheritedRanges, ranges, subClasses));
+        }
+
+        return new SchemaIndex(SchemaIndex.sorted(classes), Collections.unmodifiableMap(propertiesIndex),
+                Collections.unmodifiableMap(objects), Collections.unmodifiableMap(subClasses),
+                SchemaIndex.labels(asserted));
+    }
+
+    /**
+     * Collects the classes, the properties and the annotation properties a
+     * schema declares or uses.
+     */
+    private static void collectTerms(Model model, Set<String> classes, Set<String> properties,
+            Set<String> annotationProperties) {
+        for (Resource type : CLASS_TYPES) {
+            classes.addAll(SchemaIndex.subjects(model, RDF.type, type));
+        }
+        Map<String, Set<String>> superClasses = SchemaIndex.statementTable(model, RDFS.subClassOf);
+        addTerms(classes, superClasses);
+        addTerms(classes, SchemaIndex.statementTable(model, OWL.equivalentClass));
+
+        for (Resource type : PROPERTY_TYPES) {
+            properties.addAll(SchemaIndex.subjects(model, RDF.type, type));
+        }
+        addTerms(properties, SchemaIndex.statementTable(model, RDFS.subPropertyOf));
+        addTerms(properties, SchemaIndex.statementTable(model, OWL.equivalentProperty));
+        Map<String, Set<String>> domains = SchemaIndex.statementTable(model, RDFS.domain);
+        Map<String, Set<String>> ranges = SchemaIndex.statementTable(model, RDFS.range);
+        properties.addAll(domains.keySet());
+        properties.addAll(ranges.keySet());
+        for (Set<String> values : domains.values()) {
+            addClasses(classes, values);
+        }
+        for (Set<String> values : ranges.values()) {
+            addClasses(classes, values);
+        }
+
+        annotationProperties.addAll(SchemaIndex.subjects(model, RDF.type, OWL.AnnotationProperty));
+        properties.removeAll(annotationProperties);
+    }
+
+    /**
+     * Adds the terms of a hierarchy (both sides of its statements) to a set.
+     */
+    private static void addTerms(Set<String> terms, Map<String, Set<String>> hierarchy) {
+        for (Map.Entry<String, Set<String>> entry : hierarchy.entrySet()) {
+            terms.add(entry.getKey());
+            terms.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Adds the domains or ranges that are classes, leaving out literals and
+     * datatypes.
+     */
+    private static void addClasses(Set<String> classes, Set<String> values) {
+        for (String value : values) {
+            if (!value.equals(RDFS.Literal.getURI()) && !value.equals(RDFS.Resource.getURI())
+                    && !value.startsWith(XSD.getURI()) && !value.equals(RDF.getURI() + "XMLLiteral")
+                    && !value.equals(RDF.getURI() + "PlainLiteral")) {
+                classes.add(value);
+            }
+        }
+    }
+
+    /**
+     * Adds an equivalence to a hierarchy, as subsumption both ways.
+     */
+    private static void addSymmetric(Map<String, Set<String>> hierarchy, Map<String, Set<String>> equivalences) {
+        for (Map.Entry<String, Set<String>> entry : equivalences.entrySet()) {
+            for (String other : entry.getValue()) {
+                put(hierarchy, entry.getKey(), other);
+                put(hierarchy, other, entry.getKey());
+            }
+        }
+    }
+
+    private static void addAll(Map<String, Set<String>> table, Map<String, Set<String>> values) {
+        for (Map.Entry<String, Set<String>> entry : values.entrySet()) {
+            for (String value : entry.getValue()) {
+                put(table, entry.getKey(), value);
+            }
+        }
+    }
+
+    private static void put(Map<String, Set<String>> table, String key, String value) {
+        Set<String> values = table.get(key);
+        if (values == null) {
+            values = new HashSet<String>();
+            table.put(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * The strict transitive closure of a hierarchy, for every term.
+     */
+    private static Map<String, Set<String>> closure(Set<String> terms, Map<String, Set<String>> parents) {
+        Map<String, Set<String>> closure = new HashMap<String, Set<String>>();
+        Deque<String> queue = new ArrayDeque<String>();
+        for (String term : terms) {
+            Set<String> reached = new HashSet<String>();
+            queue.addAll(SchemaIndex.get(parents, term));
+            while (!queue.isEmpty()) {
+                String next = queue.poll();
+                if (reached.add(next)) {
+                    queue.addAll(SchemaIndex.get(parents, next));
+                }
+            }
+            reached.remove(term);
+            closure.put(term, reached);
+        }
+        return closure;
+    }
+
+    /**
+     * The values (domains or ranges) of every property together with the
+     * values of its superproperties.
+     */
+    private static Map<String, Set<String>> inherit(Set<String> properties, Map<String, Set<String>> values,
+            Map<String, Set<String>> superProperties) {
+        Map<String, Set<String>> inherited = new HashMap<String, Set<String>>();
+        for (String p : properties) {
+            Set<String> all = new HashSet<String>(SchemaIndex.get(values, p));
+            for (String superProperty : superProperties.get(p)) {
+                all.addAll(SchemaIndex.get(values, superProperty));
+            }
+            if (!all.isEmpty()) {
+                inherited.put(p, all);
+            }
+        }
+        return inherited;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.List;
+
+/**
+ * What changed when a schema was added on top of the loaded ones: the classes
+ * that are new or whose properties or subclasses changed, and the properties
+ * that are new or whose objects changed.
+ */
+public final class SchemaDelta {
+
+    private final List<String> changedClasses;
+    private final List<String> changedProperties;
+
+    SchemaDelta(List<String> changedClasses, List<String> changedProperties) {
+        this.changedClasses = changedClasses;
+        this.changedProperties = changedProperties;
+    }
+
+    /**
+     * @return the URIs of the new or changed classes, sorted
+     */
+    public List<String> getChangedClasses() {
+        return changedClasses;
+    }
+
+    /**
+     * @return the URIs of the new or changed properties, sorted
+     */
+    public List<String> getChangedProperties() {
+        return changedProperties;
+    }
+
+    public boolean isEmpty() {
+        return changedClasses.isEmpty() && changedProperties.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "classes: " + changedClasses + ", properties: " + changedProperties;
+    }
+}
@@ -0,0 +1,710 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.compose.MultiUnion;
+import com.hp.hpl.jena.ontology.OntClass;
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.ontology.OntProperty;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, precomputed view of a classified schema. It is built once,
+ * after a model has been loaded, and answers the questions of
+ * {@link OntologyReasoner} (classes, applicable properties, allowed objects)
+ * with map lookups instead of inference queries.
+ *
+ * All the lists returned are sorted, free of duplicates, unmodifiable and
+ * shared between callers. Every URI is stored once, in the
+ * {@link TermDictionary} of the index, and the lists are {@link TermList}s of
+ * its ids. The same answers are available as arrays of ids, which involve no
+ * strings at all.
+ */
+public final class SchemaIndex {
+
+    //the domains of the properties, as the reasoner gives them
+    private static final PreparedQuery DOMAINS = PreparedQuery.compile("SELECT ?property ?domain\n"
+            + "WHERE {\n"
+            + "?property <" + RDFS.domain + "> ?domain\n"
+            + "}");
+
+    static final SchemaIndex EMPTY = new SchemaIndex(Collections.<String>emptyList(),
+            Collections.<String, List<String>>emptyMap(),
+            Collections.<String, List<String>>emptyMap(),
+            Collections.<String, List<String>>emptyMap(),
+            Collections.<String, List<String>>emptyMap());
+
+    private static final int[] NONE = new int[0];
+
+    private final TermDictionary dictionary;
+    private final TermList classes;
+    private final Map<String, List<String>> properties;
+    private final Map<String, List<String>> objects;
+    private final Map<String, List<String>> subClasses;
+    private final Map<String, List<String>> labels;
+    //the same tables by id, null where the map has no entry
+    private final TermList[] propertiesById;
+    private final TermList[] objectsById;
+    private final TermList[] subClassesById;
+    //built on the first listLinkingProperties
+    private volatile PropertyMatrix matrix;
+
+    SchemaIndex(List<String> classes, Map<String, List<String>> properties,
+            Map<String, List<String>> objects, Map<String, List<String>> subClasses,
+            Map<String, List<String>> labels) {
+        Set<String> uris = new HashSet<String>(classes);
+        collect(properties, uris);
+        collect(objects, uris);
+        collect(subClasses, uris);
+        this.dictionary = TermDictionary.of(uris);
+        this.classes = encode(classes);
+        this.propertiesById = new TermList[dictionary.size()];
+        this.objectsById = new TermList[dictionary.size()];
+        this.subClassesById = new TermList[dictionary.size()];
+        this.properties = encode(properties, propertiesById);
+        this.objects = encode(objects, objectsById);
+        this.subClasses = encode(subClasses, subClassesById);
+        //only the labels of the terms of the index are kept
+        Map<String, List<String>> termLabels = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : labels.entrySet()) {
+            int id = dictionary.id(entry.getKey());
+            if (id >= 0) {
+                termLabels.put(dictionary.term(id), entry.getValue());
+            }
+        }
+        this.labels = Collections.unmodifiableMap(termLabels);
+    }
+
+    private static void collect(Map<String, List<String>> table, Set<String> uris) {
+        for (Map.Entry<String, List<String>> entry : table.entrySet()) {
+            uris.add(entry.getKey());
+            uris.addAll(entry.getValue());
+        }
+    }
+
+    private TermList encode(List<String> uris) {
+        int[] ids = new int[uris.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dictionary.id(uris.get(i));
+        }
+        return new TermList(dictionary, ids);
+    }
+
+    /**
+     * Re-keys a table with the strings of the dictionary, filling the table by
+     * id as well.
+     */
+    private Map<String, List<String>> encode(Map<String, List<String>> table, TermList[] byId) {
+        Map<String, List<String>> encoded = new HashMap<String, List<String>>(table.size() * 2);
+        for (Map.Entry<String, List<String>> entry : table.entrySet()) {
+            int id = dictionary.id(entry.getKey());
+            TermList list = encode(entry.getValue());
+            byId[id] = list;
+            encoded.put(dictionary.term(id), list);
+        }
+        return Collections.unmodifiableMap(encoded);
+    }
+
+    /**
+     * Return all classes of the schema
+     *
+     * @return the URIs of all the named classes of the schema
+     */
+    public List<String> getAllClasses() {
+        return classes;
+    }
+
+    /**
+     * Return all properties that can be applied to instances of this class.
+     *
+     * @param subject the URI of the class
+     * @return the properties that can be applied to the specific subject, or an
+     * empty list if the subject is unknown
+     */
+    public List<String> listProperties(String subject) {
+        List<String> list = properties.get(subject);
+        return list == null ? Collections.<String>emptyList() : list;
+    }
+
+    /**
+     * Return all objects that can be applied to a specific property
+     *
+     * @param property the URI of the property
+     * @return the objects that can be applied to the specific property, or null
+     * if the property is not defined in the schema
+     */
+    public List<String> listObjects(String property) {
+        return objects.get(property);
+    }
+
+    /**
+     * Return all the (direct and indirect) subclasses of a class
+     *
+     * @param cls the URI of the class
+     * @return the subclasses of the class, or an empty list if the class is
+     * unknown
+     */
+    public List<String> listSubClasses(String cls) {
+        List<String> list = subClasses.get(cls);
+        return list == null ? Collections.<String>emptyList() : list;
+    }
+
+    /**
+     * Return the rdfs:label values of a class or property, in all languages
+     *
+     * @param uri the URI of the class or property
+     * @return the labels, or an empty list if it has none
+     */
+    public List<String> listLabels(String uri) {
+        List<String> list = labels.get(uri);
+        return list == null ? Collections.<String>emptyList() : list;
+    }
+
+    /**
+     * @return the dictionary of the URIs of this index, which gives the
+     * meaning of the ids used by the methods below
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Like {@link #getAllClasses()}, by id.
+     *
+     * @return the ids of all the named classes of the schema
+     */
+    public int[] getAllClassIds() {
+        return classes.ids();
+    }
+
+    /**
+     * Like {@link #listProperties(String)}, by id.
+     *
+     * @param subject the id of the class
+     * @return the ids of the properties that can be applied to the subject,
+     * or an empty array if the id is not a class
+     */
+    public int[] listPropertyIds(int subject) {
+        return ids(propertiesById, subject, NONE);
+    }
+
+    /**
+     * Like {@link #listObjects(String)}, by id.
+     *
+     * @param property the id of the property
+     * @return the ids of the objects that can be applied to the property, or
+     * null if the id is not a property of the schema
+     */
+    public int[] listObjectIds(int property) {
+        return ids(objectsById, property, null);
+    }
+
+    /**
+     * Like {@link #listSubClasses(String)}, by id.
+     *
+     * @param cls the id of the class
+     * @return the ids of the subclasses of the class, or an empty array if
+     * the id is not a class
+     */
+    public int[] listSubClassIds(int cls) {
+        return ids(subClassesById, cls, NONE);
+    }
+
+    /**
+     * Return all properties that can link instances of a class to instances
+     * of another: the properties of {@link #listProperties(String)} of the
+     * subject whose {@link #listObjects(String)} include the object. The
+     * answer is the intersection of two precomputed bitsets.
+     *
+     * @param subject the URI of the subject class
+     * @param object the URI of the object class
+     * @return the properties linking the subject to the object, or an empty
+     * list if there are none or a class is unknown
+     */
+    public List<String> listLinkingProperties(String subject, String object) {
+        int[] ids = listLinkingPropertyIds(dictionary.id(subject), dictionary.id(object));
+        return ids.length == 0 ? Collections.<String>emptyList() : new TermList(dictionary, ids);
+    }
+
+    /**
+     * Like {@link #listLinkingProperties(String, String)}, by id.
+     *
+     * @param subject the id of the subject class
+     * @param object the id of the object class
+     * @return the ids of the properties linking the subject to the object, or
+     * an empty array if there are none
+     */
+    public int[] listLinkingPropertyIds(int subject, int object) {
+        PropertyMatrix built = matrix;
+        if (built == null) {
+            synchronized (this) {
+                built = matrix;
+                if (built == null) {
+                    built = new PropertyMatrix(dictionary.size(), propertiesById, objectsById);
+                    matrix = built;
+                }
+            }
+        }
+        return built.linking(subject, object);
+    }
+
+    private static int[] ids(TermList[] table, int id, int[] missing) {
+        TermList list = (id >= 0 && id < table.length) ? table[id] : null;
+        if (list == null) {
+            return missing;
+        }
+        return list.size() == 0 ? NONE : list.ids();
+    }
+
+    Map<String, List<String>> properties() {
+        return properties;
+    }
+
+    Map<String, List<String>> objects() {
+        return objects;
+    }
+
+    Map<String, List<String>> subClasses() {
+        return subClasses;
+    }
+
+    Map<String, List<String>> labels() {
+        return labels;
+    }
+
+    /**
+     * Builds the index of a loaded (and prepared) model. The model is only
+     * read, never modified.
+     *
+     * @param model the model to index
+     * @return the index of the model
+     */
+    static SchemaIndex build(OntModel model) {
+        return build(model, null, null);
+    }
+
+    /**
+     * Builds the index of a model that was extended with new statements,
+     * reusing the entries of the previous index that the new statements
+     * cannot have changed: the per-class lookups (subclasses, declared
+     * properties) are only repeated for the classes related to the terms the
+     * new statements mention.
+     *
+     * @param model the extended (and prepared) model
+     * @param previous the index of the model before the extension, or null to
+     * build everything
+     * @param added the new statements
+     * @return the index of the extended model
+     */
+    static SchemaIndex build(OntModel model, SchemaIndex previous, Model added) {
+        Model asserted = assertedModel(model);
+
+        Set<String> classes = new LinkedHashSet<String>();
+        ExtendedIterator<OntClass> classIt = model.listClasses();
+        while (classIt.hasNext()) {
+            OntClass c = classIt.next();
+            if (c.getURI() != null) {
+                classes.add(c.getURI());
+            }
+        }
+
+        List<String> annotationProperties = new ArrayList<String>();
+        ExtendedIterator annotationIt = model.listAnnotationProperties();
+        while (annotationIt.hasNext()) {
+            annotationProperties.add(annotationIt.next().toString());
+        }
+
+        //null means that every class has to be looked up
+        Set<String> refresh = null;
+        if (previous != null && added != null) {
+            refresh = affectedClasses(model, added);
+            for (String uri : annotationProperties) {
+                //annotation properties apply to every class
+                if (!previous.objects.containsKey(uri)) {
+                    refresh = null;
+                    break;
+                }
+            }
+        }
+
+        Map<String, List<String>> subClasses = new HashMap<String, List<String>>();
+        for (String uri : classes) {
+            if (refresh != null && !refresh.contains(uri) && previous.subClasses.containsKey(uri)) {
+                subClasses.put(uri, previous.subClasses.get(uri));
+                continue;
+            }
+            List<String> subs = new ArrayList<String>();
+            ExtendedIterator<OntClass> subIt = model.getOntClass(uri).listSubClasses();
+            while (subIt.hasNext()) {
+                subs.add(subIt.next().toString());
+            }
+            subClasses.put(uri, sorted(subs));
+        }
+
+        //use also query , reasoner ignores direct property if isSubproperyOf is defined
+        Map<String, List<String>> domains = new HashMap<String, List<String>>();
+        QueryExecution qe = DOMAINS.execution(model, Collections.<String, String>emptyMap());
+        try {
+            ResultSet rs = qe.execSelect();
+            while (rs.hasNext()) {
+                QuerySolution s = rs.next();
+                RDFNode domain = s.get("domain");
+                if (domain.isURIResource()) {
+                    List<String> list = domains.get(domain.toString());
+                    if (list == null) {
+                        list = new ArrayList<String>();
+                        domains.put(domain.toString(), list);
+                    }
+                    list.add(s.get("property").toString());
+                }
+            }
+        } finally {
+            qe.close();
+        }
+
+        Map<String, List<String>> properties = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : domains.entrySet()) {
+            properties.put(entry.getKey(), sorted(entry.getValue()));
+        }
+        for (String uri : classes) {
+            if (refresh != null && !refresh.contains(uri) && previous.properties.containsKey(uri)) {
+                properties.put(uri, previous.properties.get(uri));
+                continue;
+            }
+            List<String> listProps = new ArrayList<String>();
+            if (domains.containsKey(uri)) {
+                listProps.addAll(domains.get(uri));
+            }
+            ExtendedIterator itq = model.getOntClass(uri).listDeclaredProperties(false);
+            while (itq.hasNext()) {
+                OntProperty property = (OntProperty) itq.next();
+                if (property.getDomain() != null) {
+                    listProps.add(property.toString());
+                }
+            }
+            listProps.addAll(annotationProperties);
+            properties.put(uri, sorted(listProps));
+        }
+
+        //the property hierarchy and the ranges are read once; the objects of
+        //every property are then resolved from these tables
+        Map<String, Set<String>> superProperties = statementTable(model, RDFS.subPropertyOf);
+        Map<String, Set<String>> ranges = statementTable(model, RDFS.range);
+        Map<String, Set<String>> assertedRanges = statementTable(asserted, RDFS.range);
+
+        Map<String, List<String>> objects = new HashMap<String, List<String>>();
+        ExtendedIterator<OntProperty> propertyIt = model.listAllOntProperties();
+        while (propertyIt.hasNext()) {
+            OntProperty p = propertyIt.next();
+            if (p.getURI() != null && !objects.containsKey(p.getURI())) {
+                objects.put(p.getURI(), listObjects(p.getURI(), superProperties, ranges, assertedRanges, subClasses));
+            }
+        }
+        for (String uri : annotationProperties) {
+            if (!objects.containsKey(uri)) {
+                objects.put(uri, listObjects(uri, superProperties, ranges, assertedRanges, subClasses));
+            }
+        }
+
+        return new SchemaIndex(sorted(classes), Collections.unmodifiableMap(properties),
+                Collections.unmodifiableMap(objects), Collections.unmodifiableMap(subClasses),
+                labels(asserted));
+    }
+
+    /**
+     * The classes whose subclasses or properties may change because of the
+     * added statements: the classes they mention along with their super and
+     * subclasses, and the domains (and their subclasses) of the properties
+     * they mention.
+     */
+    private static Set<String> affectedClasses(OntModel model, Model added) {
+        Set<String> touched = new HashSet<String>();
+        StmtIterator it = added.listStatements();
+        while (it.hasNext()) {
+            Statement stmt = it.next();
+            if (stmt.getSubject().isURIResource()) {
+                touched.add(stmt.getSubject().getURI());
+            }
+            if (stmt.getObject().isURIResource()) {
+                touched.add(stmt.getObject().asResource().getURI());
+            }
+        }
+        Set<String> affected = new HashSet<String>();
+        for (String uri : touched) {
+            OntProperty p = model.getOntProperty(uri);
+            if (p != null) {
+                StmtIterator domainIt = model.listStatements(p, RDFS.domain, (RDFNode) null);
+                while (domainIt.hasNext()) {
+                    RDFNode domain = domainIt.next().getObject();
+                    if (domain.isURIResource()) {
+                        addWithSubClasses(model, domain.asResource().getURI(), affected);
+                    }
+                }
+            }
+            OntClass c = model.getOntClass(uri);
+            if (c != null) {
+                addWithSubClasses(model, uri, affected);
+                ExtendedIterator<OntClass> superIt = c.listSuperClasses();
+                while (superIt.hasNext()) {
+                    affected.add(superIt.next().toString());
+                }
+            }
+        }
+        return affected;
+    }
+
+    private static void addWithSubClasses(OntModel model, String uri, Set<String> affected) {
+        OntClass c = model.getOntClass(uri);
+        if (c != null && affected.add(uri)) {
+            ExtendedIterator<OntClass> subIt = c.listSubClasses();
+            while (subIt.hasNext()) {
+                affected.add(subIt.next().toString());
+            }
+        }
+    }
+
+    /**
+     * Compares two indexes.
+     *
+     * @param previous the index before a schema was added
+     * @return the classes and properties whose answers differ between the two
+     * indexes
+     */
+    SchemaDelta diff(SchemaIndex previous) {
+        Set<String> changedClasses = new HashSet<String>();
+        for (String uri : classes) {
+            if (!listProperties(uri).equals(previous.listProperties(uri))
+                    || !listSubClasses(uri).equals(previous.listSubClasses(uri))
+                    || !previous.subClasses.containsKey(uri)) {
+                changedClasses.add(uri);
+            }
+        }
+        Set<String> changedProperties = new HashSet<String>();
+        for (Map.Entry<String, List<String>> entry : objects.entrySet()) {
+            if (!entry.getValue().equals(previous.objects.get(entry.getKey()))) {
+                changedProperties.add(entry.getKey());
+            }
+        }
+        return new SchemaDelta(sorted(changedClasses), sorted(changedProperties));
+    }
+
+    /**
+     * The objects of a property are its direct range together with the
+     * subclasses of the range. A property without a range of its own gets the
+     * ranges of its super properties instead (e.g. skos:prefLabel, which is a
+     * subproperty of rdfs:label).
+     *
+     * The direct range is what remains of the property's ranges once the ones
+     * inherited through rdfs:subPropertyOf are taken away (the asserted ones
+     * are always kept), or the inherited ranges when nothing remains,
+     * narrowed down to the most specific classes. Like the range Jena reads
+     * once the super properties are removed, which this replaces, it is
+     * expanded with its subclasses in both cases.
+     */
+    static List<String> listObjects(String property, Map<String, Set<String>> superProperties,
+            Map<String, Set<String>> ranges, Map<String, Set<String>> assertedRanges,
+            Map<String, List<String>> subClasses) {
+        Set<String> supers = get(superProperties, property);
+        Set<String> inherited = new HashSet<String>();
+        for (String superProperty : supers) {
+            if (!superProperty.equals(property)) {
+                inherited.addAll(get(ranges, superProperty));
+            }
+        }
+        Set<String> direct = new HashSet<String>(get(assertedRanges, property));
+        for (String range : get(ranges, property)) {
+            if (!inherited.contains(range)) {
+                direct.add(range);
+            }
+        }
+        if (direct.isEmpty()) {
+            direct = inherited;
+        }
+        //keep the most specific ones, e.g. not owl:Thing next to a real range
+        Set<String> mostSpecific = new HashSet<String>(direct);
+        for (String range : direct) {
+            List<String> subs = subClasses.get(range);
+            if (subs != null && !Collections.disjoint(subs, direct)) {
+                mostSpecific.remove(range);
+            }
+        }
+
+        List<String> listObjects = new ArrayList<String>();
+        for (String range : mostSpecific) {
+            listObjects.add(range);
+            List<String> subs = subClasses.get(range);
+            if (subs != null) {
+                listObjects.addAll(subs);
+            }
+        }
+        return sorted(listObjects);
+    }
+
+    /**
+     * Reads all the statements of a predicate into a table subject to objects,
+     * keeping only named resources.
+     */
+    static Map<String, Set<String>> statementTable(Model model, Property predicate) {
+        Map<String, Set<String>> table = new HashMap<String, Set<String>>();
+        StmtIterator it = model.listStatements(null, predicate, (RDFNode) null);
+        try {
+            while (it.hasNext()) {
+                Statement stmt = it.next();
+                if (stmt.getSubject().isURIResource() && stmt.getObject().isURIResource()) {
+                    String subject = stmt.getSubject().getURI();
+                    Set<String> values = table.get(subject);
+                    if (values == null) {
+                        values = new HashSet<String>();
+                        table.put(subject, values);
+                    }
+                    values.add(stmt.getObject().asResource().getURI());
+                }
+            }
+        } finally {
+            it.close();
+        }
+        return table;
+    }
+
+    /**
+     * Reads the rdfs:label values of every named resource, whatever their
+     * language.
+     */
+    static Map<String, List<String>> labels(Model model) {
+        Map<String, Set<String>> table = new HashMap<String, Set<String>>();
+        StmtIterator it = model.listStatements(null, RDFS.label, (RDFNode) null);
+        try {
+            while (it.hasNext()) {
+                Statement stmt = it.next();
+                if (stmt.getSubject().isURIResource() && stmt.getObject().isLiteral()) {
+                    String subject = stmt.getSubject().getURI();
+                    Set<String> values = table.get(subject);
+                    if (values == null) {
+                        values = new HashSet<String>();
+                        table.put(subject, values);
+                    }
+                    values.add(stmt.getObject().asLiteral().getLexicalForm());
+                }
+            }
+        } finally {
+            it.close();
+        }
+        Map<String, List<String>> labels = new HashMap<String, List<String>>();
+        for (Map.Entry<String, Set<String>> entry : table.entrySet()) {
+            labels.put(entry.getKey(), sorted(entry.getValue()));
+        }
+        return labels;
+    }
+
+    /**
+     * The named resources that have a value for a predicate.
+     */
+    static Set<String> subjects(Model model, Property predicate, RDFNode value) {
+        Set<String> subjects = new HashSet<String>();
+        StmtIterator it = model.listStatements(null, predicate, value);
+        try {
+            while (it.hasNext()) {
+                Statement stmt = it.next();
+                if (stmt.getSubject().isURIResource()) {
+                    subjects.add(stmt.getSubject().getURI());
+                }
+            }
+        } finally {
+            it.close();
+        }
+        return subjects;
+    }
+
+    static Set<String> get(Map<String, Set<String>> table, String key) {
+        Set<String> values = table.get(key);
+        return values == null ? Collections.<String>emptySet() : values;
+    }
+
+    /**
+     * Answers the statements that were actually read into the model (and the
+     * models chained into it), without any of the inferred ones.
+     */
+    static Model assertedModel(OntModel model) {
+        return ModelFactory.createModelForGraph(assertedGraph(model));
+    }
+
+    /**
+     * The graphs the statements of a model were read into, combined.
+     */
+    static MultiUnion assertedGraph(OntModel model) {
+        MultiUnion union = new MultiUnion();
+        collectAsserted(model.getGraph(), union);
+        return union;
+    }
+
+    private static void collectAsserted(Graph graph, MultiUnion union) {
+        if (graph instanceof InfGraph) {
+            collectAsserted(((InfGraph) graph).getRawGraph(), union);
+        } else if (graph instanceof MultiUnion) {
+            MultiUnion multi = (MultiUnion) graph;
+            if (multi.getBaseGraph() != null) {
+                collectAsserted(multi.getBaseGraph(), union);
+            }
+            for (Graph sub : multi.getSubGraphs()) {
+                collectAsserted(sub, union);
+            }
+        } else {
+            union.addGraph(graph);
+        }
+    }
+
+    static List<String> sorted(Collection<String> items) {
+        //remove duplicates
+        Set<String> setItems = new LinkedHashSet<String>(items);
+        String[] array = setItems.toArray(new String[setItems.size()]);
+        //sort list
+        Arrays.sort(array);
+        return Collections.unmodifiableList(Arrays.asList(array));
+    }
+}
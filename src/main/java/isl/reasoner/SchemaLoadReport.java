@@ -0,0 +1,150 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of {@link OntologyReasoner#loadAsync(java.util.List)}: how long
+ * every source took to fetch and parse and why it failed, if it did, and how
+ * long the merged schemas took to classify. The schemas are loaded only if
+ * every source could be read.
+ */
+public final class SchemaLoadReport {
+
+    private final List<SourceReport> sources;
+    private final boolean loaded;
+    private final Map<String, String> prefixes;
+    private final long classificationMillis;
+    private final long totalMillis;
+
+    SchemaLoadReport(List<SourceReport> sources, boolean loaded, Map<String, String> prefixes,
+            long classificationMillis, long totalMillis) {
+        this.sources = sources;
+        this.loaded = loaded;
+        this.prefixes = prefixes;
+        this.classificationMillis = classificationMillis;
+        this.totalMillis = totalMillis;
+    }
+
+    /**
+     * @return the report of every source, in the order they were given
+     */
+    public List<SourceReport> getSources() {
+        return sources;
+    }
+
+    /**
+     * @return true if the schemas were loaded, false if a source failed and
+     * the previously loaded schemas were kept
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the namespace prefixes declared by the sources (empty if they
+     * were not loaded)
+     */
+    public Map<String, String> getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * @return the time spent merging and classifying the parsed sources, 0 if
+     * they were found in the schema cache or not loaded
+     */
+    public long getClassificationMillis() {
+        return classificationMillis;
+    }
+
+    /**
+     * @return the time from the call to the end of the loading
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return (loaded ? "loaded " : "not loaded ") + sources + ", classification " + classificationMillis
+                + "ms, total " + totalMillis + "ms";
+    }
+
+    /**
+     * How one source was fetched and parsed.
+     */
+    public static final class SourceReport {
+
+        private final SchemaSource source;
+        private final long fetchMillis;
+        private final long parseMillis;
+        private final long triples;
+        private final Exception error;
+
+        SourceReport(SchemaSource source, long fetchMillis, long parseMillis, long triples, Exception error) {
+            this.source = source;
+            this.fetchMillis = fetchMillis;
+            this.parseMillis = parseMillis;
+            this.triples = triples;
+            this.error = error;
+        }
+
+        public SchemaSource getSource() {
+            return source;
+        }
+
+        public long getFetchMillis() {
+            return fetchMillis;
+        }
+
+        public long getParseMillis() {
+            return parseMillis;
+        }
+
+        /**
+         * @return the number of statements parsed
+         */
+        public long getTriples() {
+            return triples;
+        }
+
+        /**
+         * @return why the source could not be fetched or parsed, or null
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return source + (error != null ? " failed: " + error.getMessage()
+                    : " fetched in " + fetchMillis + "ms, parsed in " + parseMillis + "ms");
+        }
+    }
+}
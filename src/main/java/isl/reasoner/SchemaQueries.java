@@ -0,0 +1,113 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The questions 3MEditor asks about the loaded schemas: the valid classes,
+ * the properties of a class, the objects of a property and the properties
+ * linking two classes. Answered locally
+ * by an {@link OntologyReasoner}, or by a {@link ReasonerServer} through a
+ * {@link RemoteReasoner}.
+ */
+public interface SchemaQueries {
+
+    /**
+     * Return all classes of the model
+     *
+     * @return an arrayList with all the classes of the model
+     * @throws java.lang.Exception
+     */
+    ArrayList<String> getAllClasses() throws Exception;
+
+    /**
+     * Return all properties that can be applied to instances of this class.
+     *
+     * @param subject
+     * @return An arrayList with the properties that can be applied to the
+     * specific subject
+     * @throws java.lang.Exception
+     */
+    ArrayList<String> listProperties(String subject) throws Exception;
+
+    /**
+     * Return all objects that can be applied to a specific property
+     *
+     * @param property
+     * @return An arrayList with the objects that can be applied to the specific
+     * property
+     * @throws NullPointerException if the property is unknown
+     * @throws java.lang.Exception
+     */
+    ArrayList<String> listObjects(String property) throws Exception;
+
+    /**
+     * Return all properties that can link instances of a class to instances
+     * of another: the properties of {@link #listProperties(String)} of the
+     * subject whose {@link #listObjects(String)} include the object.
+     *
+     * @param subject the subject class
+     * @param object the object class
+     * @return An arrayList with the properties linking the subject to the
+     * object, empty if a class is unknown
+     * @throws InvalidParameterException if a class has leading/trailing
+     * whitespaces
+     * @throws java.lang.Exception
+     */
+    ArrayList<String> listLinkingProperties(String subject, String object) throws Exception;
+
+    /**
+     * Return the properties of several classes at once, like calling
+     * {@link #listProperties(String)} for each of them.
+     *
+     * @param subjects the class URIs
+     * @return the properties of every subject, in the iteration order of the
+     * subjects
+     * @throws InvalidParameterException if a subject has leading/trailing
+     * whitespaces
+     * @throws java.lang.Exception
+     */
+    Map<String, List<String>> listProperties(Collection<String> subjects) throws Exception;
+
+    /**
+     * Return the objects of several properties at once, like calling
+     * {@link #listObjects(String)} for each of them.
+     *
+     * @param properties the property URIs
+     * @return the objects of every property, in the iteration order of the
+     * properties. Properties unknown to the loaded schemas have no entry.
+     * @throws InvalidParameterException if a property has leading/trailing
+     * whitespaces
+     * @throws java.lang.Exception
+     */
+    Map<String, List<String>> listObjects(Collection<String> properties) throws Exception;
+}
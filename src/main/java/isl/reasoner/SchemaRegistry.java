@@ -0,0 +1,513 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Serves many sets of schemas from one process within a memory budget. A
+ * schema set is registered under a name and a version, and is made of shared
+ * base ontologies (e.g. RDFS, SKOS) followed by its own schemas. The bases of
+ * a set are loaded first, in the order of their names, so all the sets using
+ * the same bases share a single classified copy of them. A set restored from
+ * its snapshot holds the index of its bases and schemas as one copy of its
+ * own.
+ *
+ * The first {@link #get(String, String)} of a set loads it and writes a
+ * snapshot of its classification in the registry directory. When the
+ * schemas in memory exceed the budget, the least recently used sets are
+ * dropped; the next get restores them from their snapshot, without parsing
+ * or classifying them, even after a restart. A version is taken as
+ * immutable: its snapshot is reused as long as the same sources are
+ * registered under it and its files keep their contents (schemas read from
+ * URLs are taken by their location).
+ *
+ * The reasoners returned are shared by all the callers and must only be
+ * queried; nothing can be loaded on top of them. The query methods of a
+ * restored set answer from its snapshot, but its first
+ * {@link OntologyReasoner#select(String, Map)} or
+ * {@link OntologyReasoner#ask(String, Map)} loads its schemas again (sharing
+ * the bases with the sets in memory), since SPARQL needs their model. Callers should ask the
+ * registry every time instead of keeping them, so dropped sets can be
+ * garbage collected.
+ */
+public final class SchemaRegistry {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    //the classified schemas of the loaded sets, pruned when a set is dropped
+    private final SchemaCache cache = new SchemaCache(Long.MAX_VALUE);
+    private final Map<String, List<SchemaSource>> bases = new LinkedHashMap<String, List<SchemaSource>>();
+    //name to version to set, in the order of registration
+    private final Map<String, LinkedHashMap<String, SchemaSet>> sets = new LinkedHashMap<String, LinkedHashMap<String, SchemaSet>>();
+    //the sets in memory, least recently used first
+    private final LinkedHashMap<SchemaSet, Boolean> loaded = new LinkedHashMap<SchemaSet, Boolean>(16, 0.75f, true);
+    private long maxBytes;
+    private ReasoningProfile profile = ReasoningProfile.PELLET_DL;
+    private ImportCatalog importCatalog;
+    private RemoteSchemaCache remoteCache;
+    private long loads;
+    private long restores;
+    private long evictions;
+
+    /**
+     * Creates a registry keeping the snapshots of its sets in a directory,
+     * which is created if needed.
+     *
+     * @param directory the directory of the snapshots
+     * @param maxBytes the estimated heap the sets in memory may occupy
+     */
+    public SchemaRegistry(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Defines a base ontology that schema sets can share.
+     *
+     * @param name the name sets refer to it by
+     * @param sources its schemas, loaded in this order
+     * @throws IllegalStateException if a base of that name is already defined
+     */
+    public synchronized void defineBase(String name, List<SchemaSource> sources) {
+        if (bases.containsKey(name)) {
+            throw new IllegalStateException("The base is already defined: " + name);
+        }
+        bases.put(name, new ArrayList<SchemaSource>(sources));
+    }
+
+    /**
+     * Registers a version of a schema set. Registering a version again
+     * replaces it.
+     *
+     * @param name the name of the set
+     * @param version its version
+     * @param baseNames the names of the bases it is loaded on top of
+     * @param sources its own schemas, loaded in this order
+     * @throws IllegalArgumentException if a base is not defined
+     */
+    public synchronized void register(String name, String version, List<String> baseNames,
+            List<SchemaSource> sources) {
+        List<String> sorted = new ArrayList<String>(baseNames);
+        Collections.sort(sorted);
+        List<SchemaSource> all = new ArrayList<SchemaSource>();
+        for (String base : sorted) {
+            List<SchemaSource> baseSources = bases.get(base);
+            if (baseSources == null) {
+                throw new IllegalArgumentException("Unknown base: " + base);
+            }
+            all.addAll(baseSources);
+        }
+        all.addAll(sources);
+        unregister(name, version);
+        LinkedHashMap<String, SchemaSet> versions = sets.get(name);
+        if (versions == null) {
+            versions = new LinkedHashMap<String, SchemaSet>();
+            sets.put(name, versions);
+        }
+        versions.put(version, new SchemaSet(all, profile, importCatalog, key(name, version, all)));
+    }
+
+    /**
+     * Removes a version of a schema set, with its snapshot.
+     *
+     * @param name the name of the set
+     * @param version its version
+     * @return false if it was not registered
+     */
+    public synchronized boolean unregister(String name, String version) {
+        LinkedHashMap<String, SchemaSet> versions = sets.get(name);
+        SchemaSet set = versions == null ? null : versions.remove(version);
+        if (set == null) {
+            return false;
+        }
+        if (versions.isEmpty()) {
+            sets.remove(name);
+        }
+        if (loaded.remove(set) != null) {
+            set.loading = null;
+            cache.retainAll(live());
+        }
+        snapshot(set).delete();
+        return true;
+    }
+
+    /**
+     * @param name the name of a set
+     * @return its versions, in the order they were registered
+     */
+    public synchronized List<String> getVersions(String name) {
+        LinkedHashMap<String, SchemaSet> versions = sets.get(name);
+        return versions == null ? Collections.<String>emptyList()
+                : Collections.unmodifiableList(new ArrayList<String>(versions.keySet()));
+    }
+
+    /**
+     * Return the reasoner of the version of a set registered last.
+     *
+     * @param name the name of the set
+     * @return the reasoner of the set
+     * @throws FileNotFoundException if a schema of the set cannot be read
+     * @throws IllegalArgumentException if no version of the set is registered
+     */
+    public OntologyReasoner get(String name) throws FileNotFoundException {
+        String version;
+        synchronized (this) {
+            LinkedHashMap<String, SchemaSet> versions = sets.get(name);
+            if (versions == null) {
+                throw new IllegalArgumentException("Unknown schema set: " + name);
+            }
+            version = null;
+            for (String v : versions.keySet()) {
+                version = v;
+            }
+        }
+        return get(name, version);
+    }
+
+    /**
+     * Return the reasoner of a version of a set, loading it or restoring it
+     * from its snapshot if it is not in memory. Concurrent calls for the same
+     * set wait for a single load.
+     *
+     * @param name the name of the set
+     * @param version its version
+     * @return the reasoner of the set
+     * @throws FileNotFoundException if a schema of the set cannot be read
+     * @throws IllegalArgumentException if the version is not registered
+     */
+    public OntologyReasoner get(String name, String version) throws FileNotFoundException {
+        final SchemaSet set;
+        FutureTask<OntologyReasoner> task;
+        boolean run = false;
+        synchronized (this) {
+            LinkedHashMap<String, SchemaSet> versions = sets.get(name);
+            set = versions == null ? null : versions.get(version);
+            if (set == null) {
+                throw new IllegalArgumentException("Unknown schema set: " + name + " " + version);
+            }
+            if (set.loading == null) {
+                set.loading = new FutureTask<OntologyReasoner>(new Callable<OntologyReasoner>() {
+                    @Override
+                    public OntologyReasoner call() throws Exception {
+                        return load(set);
+                    }
+                });
+                run = true;
+            }
+            task = set.loading;
+            loaded.put(set, Boolean.TRUE);
+        }
+        if (run) {
+            task.run();
+        }
+        try {
+            OntologyReasoner reasoner = task.get();
+            synchronized (this) {
+                evict(set);
+            }
+            return reasoner;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            synchronized (this) {
+                if (set.loading == task) {
+                    set.loading = null;
+                    loaded.remove(set);
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof FileNotFoundException) {
+                throw (FileNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Restores a set from its snapshot, or loads its schemas and writes the
+     * snapshot.
+     */
+    private OntologyReasoner load(SchemaSet set) throws FileNotFoundException {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        //also used when a restored set is queried with SPARQL and loaded again
+        reasoner.setSchemaCache(cache);
+        reasoner.setReasoningProfile(set.profile);
+        reasoner.setImportCatalog(set.importCatalog);
+        synchronized (this) {
+            reasoner.setRemoteCache(remoteCache);
+        }
+        File file = snapshot(set);
+        String key = contentKey(set);
+        SchemaSnapshot snapshot;
+        try {
+            snapshot = SchemaSnapshot.read(file, key);
+        } catch (IOException e) {
+            snapshot = null;
+        }
+        if (snapshot != null) {
+            reasoner.restore(snapshot, key, set.sources);
+            synchronized (this) {
+                restores++;
+            }
+            return reasoner;
+        }
+        synchronized (this) {
+            loads++;
+        }
+        for (SchemaSource source : set.sources) {
+            reasoner.initiateModel(source);
+        }
+        SchemaCache.Entry entry = reasoner.current();
+        try {
+            directory.mkdirs();
+            SchemaSnapshot.write(file, key, entry.index, entry.chainPrefixes(),
+                    OntologyReasoner.isConsistent(entry, reasoner.getMetrics()));
+        } catch (IOException e) {
+            //the set stays in memory, the snapshot is written again next time
+        }
+        return reasoner;
+    }
+
+    /**
+     * Drops the least recently used sets (but the one just asked for) until
+     * the budget is met, and the classified schemas no other set uses.
+     */
+    private void evict(SchemaSet keep) {
+        Iterator<SchemaSet> it = loaded.keySet().iterator();
+        boolean dropped = false;
+        while (usedBytes() > maxBytes && it.hasNext()) {
+            SchemaSet set = it.next();
+            if (set != keep && set.loading.isDone()) {
+                it.remove();
+                set.loading = null;
+                evictions++;
+                dropped = true;
+            }
+        }
+        if (dropped) {
+            cache.retainAll(live());
+        }
+    }
+
+    /**
+     * The classified schemas the sets in memory use, shared bases once.
+     */
+    private Set<SchemaCache.Entry> live() {
+        Set<SchemaCache.Entry> live = Collections.newSetFromMap(new IdentityHashMap<SchemaCache.Entry, Boolean>());
+        for (SchemaSet set : loaded.keySet()) {
+            OntologyReasoner reasoner = set.reasoner();
+            for (SchemaCache.Entry entry = reasoner == null ? null : reasoner.current();
+                    entry != null && live.add(entry); entry = entry.parent) {
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return the estimated heap taken by the sets in memory
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes();
+    }
+
+    private long usedBytes() {
+        long used = 0;
+        for (SchemaCache.Entry entry : live()) {
+            used += entry.bytes;
+        }
+        return used;
+    }
+
+    /**
+     * Changes the memory budget, dropping sets if it is now exceeded.
+     *
+     * @param maxBytes the estimated heap the sets in memory may occupy
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict(null);
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Changes the reasoning applied to the sets registered from now on.
+     *
+     * @param profile the reasoning profile
+     */
+    public synchronized void setReasoningProfile(ReasoningProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Resolves the owl:imports of the sets registered from now on through a
+     * catalog. The imported ontologies count towards the budget of the sets
+     * importing them.
+     *
+     * @param importCatalog the catalog, or null to let Jena follow the imports
+     */
+    public synchronized void setImportCatalog(ImportCatalog importCatalog) {
+        this.importCatalog = importCatalog;
+    }
+
+    /**
+     * Keeps the schemas the sets download over HTTP in a disk cache.
+     *
+     * @param remoteCache the cache, or null
+     */
+    public synchronized void setRemoteCache(RemoteSchemaCache remoteCache) {
+        this.remoteCache = remoteCache;
+    }
+
+    /**
+     * @return the number of sets in memory
+     */
+    public synchronized int getLoadedCount() {
+        return loaded.size();
+    }
+
+    /**
+     * @return how many times the schemas of a set were parsed and classified
+     */
+    public synchronized long getLoads() {
+        return loads;
+    }
+
+    /**
+     * @return how many times a set was restored from its snapshot
+     */
+    public synchronized long getRestores() {
+        return restores;
+    }
+
+    /**
+     * @return how many times a set was dropped from memory
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private File snapshot(SchemaSet set) {
+        return new File(directory, set.key + ".snap");
+    }
+
+    /**
+     * The key of a set, from its name, version, sources (the contents of
+     * those in memory, the location of the others), reasoning profile and
+     * the mapping of the import catalog, if any.
+     */
+    private String key(String name, String version, List<SchemaSource> sources) {
+        StringBuilder description = new StringBuilder();
+        description.append(name).append('\u0000').append(version);
+        String key = null;
+        for (SchemaSource source : sources) {
+            description.append('\u0000').append(source.getName()).append(source.getExtention());
+            if (source.getContent() != null) {
+                key = SchemaCache.key(key, source.getContent(), source.getBase(), source.getExtention(), profile);
+            }
+        }
+        if (importCatalog != null) {
+            key = "imports:" + importCatalog.key() + ":" + key;
+        }
+        return SchemaCache.key(key, description.toString().getBytes(UTF8), null, "registry", profile);
+    }
+
+    /**
+     * The key a snapshot of a set must have been built with: the key of the
+     * set, and the contents of its files as they are now, so that a file
+     * edited in place under the same version is loaded again instead of
+     * restored.
+     */
+    private static String contentKey(SchemaSet set) throws FileNotFoundException {
+        String key = set.key;
+        for (SchemaSource source : set.sources) {
+            if (source.getFile() != null) {
+                key = SchemaCache.key(key, OntologyReasoner.readFile(source.getFile()), null,
+                        source.getExtention(), set.profile);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * A registered version of a schema set.
+     */
+    private static final class SchemaSet {
+
+        final List<SchemaSource> sources;
+        final ReasoningProfile profile;
+        final ImportCatalog importCatalog;
+        final String key;
+        //guarded by the registry, the loading (or loaded) reasoner, null if not in memory
+        FutureTask<OntologyReasoner> loading;
+
+        SchemaSet(List<SchemaSource> sources, ReasoningProfile profile, ImportCatalog importCatalog, String key) {
+            this.sources = sources;
+            this.profile = profile;
+            this.importCatalog = importCatalog;
+            this.key = key;
+        }
+
+        /**
+         * @return the reasoner, or null if it is not loaded (yet)
+         */
+        OntologyReasoner reasoner() {
+            if (loading == null || !loading.isDone()) {
+                return null;
+            }
+            try {
+                return loading.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+    }
+}
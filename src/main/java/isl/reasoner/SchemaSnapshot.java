@@ -0,0 +1,280 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The result of classifying a schema, stored in a compact binary file so that
+ * it can be loaded after a restart without parsing the schema or running
+ * Pellet: the classes and their subclasses, the properties of every class,
+ * the objects of every property, the labels of the classes and properties,
+ * the namespace prefixes and the consistency of the schema.
+ *
+ * The file starts with a header (magic, format version, payload length and
+ * CRC32 of the payload) followed by the payload, whose first field is the
+ * cache key of the schema it was built from. {@link #read(File, String)}
+ * returns null for a file written by another version, a corrupted file or a
+ * snapshot of other contents, so the caller can rebuild it.
+ */
+final class SchemaSnapshot {
+
+    static final int VERSION = 3;
+
+    private static final byte[] MAGIC = {'I', 'S', 'L', 'R', 'S', 'N', 'A', 'P'};
+    private static final int HEADER_LENGTH = MAGIC.length + 4 + 4 + 8;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Rough heap cost of the restored index per byte of the snapshot: the
+     * strings take twice their UTF-8 size, the tables as much again.
+     */
+    static final int HEAP_BYTES_PER_BYTE = 4;
+
+    final SchemaIndex index;
+    final Map<String, String> prefixes;
+    final boolean consistent;
+    //the estimated heap taken by the restored index
+    final long bytes;
+
+    private SchemaSnapshot(SchemaIndex index, Map<String, String> prefixes, boolean consistent, long bytes) {
+        this.index = index;
+        this.prefixes = prefixes;
+        this.consistent = consistent;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Writes the snapshot of a classified schema. The file is written aside
+     * and renamed, so readers never see a partial snapshot.
+     *
+     * @param file the snapshot file
+     * @param key the cache key of the schema contents
+     * @param index the index of the schema
+     * @param prefixes the namespace prefixes of the schema
+     * @param consistent the consistency of the schema
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, String key, SchemaIndex index, Map<String, String> prefixes,
+            boolean consistent) throws IOException {
+        //every URI (and label) is written once, the structures refer to it by position
+        Map<String, Integer> ids = new LinkedHashMap<String, Integer>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        writeIds(body, ids, index.getAllClasses());
+        body.writeInt(prefixes.size());
+        for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+            body.writeInt(id(ids, prefix.getKey()));
+            body.writeInt(id(ids, prefix.getValue()));
+        }
+        writeTable(body, ids, index.properties());
+        writeTable(body, ids, index.objects());
+        writeTable(body, ids, index.subClasses());
+        writeTable(body, ids, index.labels());
+        body.flush();
+
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        writeString(payload, key);
+        payload.writeBoolean(consistent);
+        payload.writeInt(ids.size());
+        for (String uri : ids.keySet()) {
+            writeString(payload, uri);
+        }
+        bytes.writeTo(payload);
+        payload.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(payloadBytes.toByteArray());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+        try {
+            DataOutputStream header = new DataOutputStream(out);
+            header.write(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(payloadBytes.size());
+            header.writeLong(crc.getValue());
+            payloadBytes.writeTo(header);
+            header.flush();
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Cannot replace snapshot " + file);
+            }
+        }
+    }
+
+    /**
+     * Maps and reads a snapshot file.
+     *
+     * @param file the snapshot file
+     * @param key the cache key of the schema contents the snapshot must have
+     * been built from
+     * @return the snapshot, or null if the file does not exist or is stale
+     * @throws IOException if the file cannot be read
+     */
+    static SchemaSnapshot read(File file, String key) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_LENGTH) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int length = buffer.getInt();
+            long checksum = buffer.getLong();
+            if (length != buffer.remaining()) {
+                return null;
+            }
+            ByteBuffer payload = buffer.slice();
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[8192];
+            while (payload.hasRemaining()) {
+                int n = Math.min(chunk.length, payload.remaining());
+                payload.get(chunk, 0, n);
+                crc.update(chunk, 0, n);
+            }
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+            return decode(buffer, key);
+        } catch (BufferUnderflowException ex) {
+            return null;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static SchemaSnapshot decode(ByteBuffer in, String key) {
+        long bytes = (long) in.remaining() * HEAP_BYTES_PER_BYTE;
+        if (!readString(in).equals(key)) {
+            return null;
+        }
+        boolean consistent = in.get() != 0;
+        String[] uris = new String[in.getInt()];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = readString(in);
+        }
+        List<String> classes = readIds(in, uris);
+        Map<String, String> prefixes = new HashMap<String, String>();
+        int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            String prefix = uris[in.getInt()];
+            prefixes.put(prefix, uris[in.getInt()]);
+        }
+        Map<String, List<String>> properties = readTable(in, uris);
+        Map<String, List<String>> objects = readTable(in, uris);
+        Map<String, List<String>> subClasses = readTable(in, uris);
+        Map<String, List<String>> labels = readTable(in, uris);
+        SchemaIndex index = new SchemaIndex(classes, properties, objects, subClasses, labels);
+        return new SchemaSnapshot(index, Collections.unmodifiableMap(prefixes), consistent, bytes);
+    }
+
+    private static int id(Map<String, Integer> ids, String uri) {
+        Integer id = ids.get(uri);
+        if (id == null) {
+            id = ids.size();
+            ids.put(uri, id);
+        }
+        return id;
+    }
+
+    private static void writeIds(DataOutputStream out, Map<String, Integer> ids, List<String> uris) throws IOException {
+        out.writeInt(uris.size());
+        for (String uri : uris) {
+            out.writeInt(id(ids, uri));
+        }
+    }
+
+    private static void writeTable(DataOutputStream out, Map<String, Integer> ids,
+            Map<String, List<String>> table) throws IOException {
+        out.writeInt(table.size());
+        for (Map.Entry<String, List<String>> entry : table.entrySet()) {
+            out.writeInt(id(ids, entry.getKey()));
+            writeIds(out, ids, entry.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static List<String> readIds(ByteBuffer in, String[] uris) {
+        String[] list = new String[in.getInt()];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = uris[in.getInt()];
+        }
+        return Collections.unmodifiableList(Arrays.asList(list));
+    }
+
+    private static Map<String, List<String>> readTable(ByteBuffer in, String[] uris) {
+        int size = in.getInt();
+        Map<String, List<String>> table = new HashMap<String, List<String>>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String key = uris[in.getInt()];
+            table.put(key, readIds(in, uris));
+        }
+        return Collections.unmodifiableMap(table);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
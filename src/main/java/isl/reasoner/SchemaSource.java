@@ -0,0 +1,140 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.Charset;
+
+/**
+ * A schema to be loaded by {@link OntologyReasoner#loadAsync(java.util.List)}:
+ * a URL, a file or contents already in memory, together with its syntax.
+ */
+public final class SchemaSource {
+
+    private final String location;
+    private final File file;
+    private final byte[] content;
+    private final String extention;
+
+    private SchemaSource(String location, File file, byte[] content, String extention) {
+        this.location = location;
+        this.file = file;
+        this.content = content;
+        this.extention = extention;
+    }
+
+    /**
+     * A schema read from a URL, or a file name, the way
+     * {@link OntologyReasoner#initiateModelUrl(String, String)} reads it.
+     *
+     * @param location the URL of the schema
+     * @param extention the extention telling its syntax (e.g. ".rdfs")
+     * @return the source
+     */
+    public static SchemaSource url(String location, String extention) {
+        if (location == null) {
+            throw new NullPointerException("The location is null");
+        }
+        return new SchemaSource(location, null, null, extention);
+    }
+
+    /**
+     * A schema read from a file, its syntax told by the extention of the
+     * file name.
+     *
+     * @param file the schema file
+     * @return the source
+     */
+    public static SchemaSource file(File file) {
+        String path = file.getPath();
+        return new SchemaSource(null, file, null, path.substring(path.lastIndexOf(".")));
+    }
+
+    /**
+     * A schema whose contents are already in memory.
+     *
+     * @param content the contents of the schema
+     * @param extention the extention telling its syntax (e.g. ".ttl")
+     * @return the source
+     */
+    public static SchemaSource content(String content, String extention) {
+        return new SchemaSource(null, null, content.getBytes(Charset.forName("UTF-8")), extention);
+    }
+
+    /**
+     * @return the URL, the file path, or "content" for contents in memory
+     */
+    public String getName() {
+        if (location != null) {
+            return location;
+        }
+        return file != null ? file.getPath() : "content";
+    }
+
+    public String getExtention() {
+        return extention;
+    }
+
+    /**
+     * @return the file of a schema read from a file, null for the others
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the contents of a schema in memory, null for the others
+     */
+    byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * The base URI relative URIs of the schema are resolved against.
+     */
+    String getBase() {
+        return location;
+    }
+
+    /**
+     * Reads the contents of the schema, from the network or disk if needed.
+     *
+     * @param remote the disk cache of http and https URLs, or null
+     */
+    byte[] read(RemoteSchemaCache remote) throws FileNotFoundException {
+        if (location != null) {
+            return OntologyReasoner.fetch(location, extention, remote);
+        }
+        return file != null ? OntologyReasoner.readFile(file) : content;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
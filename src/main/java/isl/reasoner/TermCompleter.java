@@ -0,0 +1,270 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Completes what a user typed to the classes and properties of a
+ * {@link SchemaIndex}. Every term is reachable by its local name, its
+ * prefixed name, its rdfs:label values and the words inside them; these keys
+ * are lower-cased and kept in one sorted array, so the keys starting with the
+ * typed text are a contiguous range found by binary search.
+ *
+ * Built once per loaded schema and immutable afterwards.
+ */
+final class TermCompleter {
+
+    //how a key was derived from its term, best first
+    private static final int LOCAL_NAME = 0;
+    private static final int PREFIXED_NAME = 1;
+    private static final int LABEL = 2;
+    private static final int WORD = 3;
+
+    private static final int MAX_KEY_LENGTH = 0xfff;
+
+    final SchemaIndex index;
+    private final String[] keys;
+    private final int[] ids;
+    private final byte[] kinds;
+    private final BitSet classes;
+    private final BitSet terms;
+
+    /**
+     * @param index the index of the schemas
+     * @param prefixes the namespace prefixes used to build the prefixed
+     * names, prefix to namespace
+     */
+    TermCompleter(SchemaIndex index, Map<String, String> prefixes) {
+        this.index = index;
+        TermDictionary dictionary = index.getDictionary();
+        classes = new BitSet(dictionary.size());
+        for (int id : index.getAllClassIds()) {
+            classes.set(id);
+        }
+        Set<String> properties = new HashSet<String>(index.objects().keySet());
+        for (List<String> list : index.properties().values()) {
+            properties.addAll(list);
+        }
+        terms = (BitSet) classes.clone();
+        for (String property : properties) {
+            terms.set(dictionary.id(property));
+        }
+
+        //every term gets keys, the objects of a property need not be classes
+        List<Key> all = new ArrayList<Key>();
+        for (int id = 0; id < dictionary.size(); id++) {
+            String uri = dictionary.term(id);
+            String localName = localName(uri);
+            addKeys(all, id, localName, LOCAL_NAME);
+            String prefixed = prefixedName(uri, prefixes);
+            if (prefixed != null) {
+                all.add(new Key(prefixed, id, PREFIXED_NAME));
+            }
+            for (String label : index.listLabels(uri)) {
+                addKeys(all, id, label, LABEL);
+            }
+        }
+        Collections.sort(all);
+        keys = new String[all.size()];
+        ids = new int[all.size()];
+        kinds = new byte[all.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Key key = all.get(i);
+            keys[i] = key.text;
+            ids[i] = key.id;
+            kinds[i] = (byte) key.kind;
+        }
+    }
+
+    /**
+     * Adds a name as a key, and each word of it after the first one. Words
+     * are separated by spaces, underscores, dashes and dots, or start with an
+     * upper case letter after a lower case one (hasTopConcept).
+     */
+    private static void addKeys(List<Key> keys, int id, String name, int kind) {
+        String text = name.trim();
+        if (text.isEmpty()) {
+            return;
+        }
+        keys.add(new Key(normalize(text), id, kind));
+        for (int i = 1; i < text.length(); i++) {
+            char previous = text.charAt(i - 1);
+            char c = text.charAt(i);
+            if ((isSeparator(previous) && !isSeparator(c))
+                    || (Character.isLowerCase(previous) && Character.isUpperCase(c))) {
+                keys.add(new Key(normalize(text.substring(i)), id, WORD));
+            }
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '_' || c == '-' || c == '.' || Character.isWhitespace(c);
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String localName(String uri) {
+        int i = Math.max(uri.lastIndexOf('#'), uri.lastIndexOf('/'));
+        if (i < 0) {
+            i = uri.lastIndexOf(':');
+        }
+        return uri.substring(i + 1);
+    }
+
+    /**
+     * The name of a URI under the longest namespace that has a prefix, or
+     * null if none has.
+     */
+    private static String prefixedName(String uri, Map<String, String> prefixes) {
+        String best = null;
+        String namespace = "";
+        for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+            String ns = prefix.getValue();
+            if (ns.length() > namespace.length() && uri.startsWith(ns) && uri.length() > ns.length()) {
+                best = prefix.getKey();
+                namespace = ns;
+            }
+        }
+        return best == null ? null : normalize(best + ":" + uri.substring(namespace.length()));
+    }
+
+    /**
+     * Completes a text to the classes, or the classes and properties.
+     *
+     * @param text what was typed
+     * @param limit the maximum number of terms returned
+     * @param classesOnly true to return only classes
+     * @return the URIs of the terms, best first
+     */
+    List<String> complete(String text, int limit, boolean classesOnly) {
+        return complete(text, limit, classesOnly ? classes : terms);
+    }
+
+    /**
+     * Completes a text to some terms of the index.
+     *
+     * @param text what was typed
+     * @param limit the maximum number of terms returned
+     * @param allowed the ids of the terms that may be returned
+     * @return the URIs of the terms, best first
+     */
+    List<String> complete(String text, int limit, int[] allowed) {
+        BitSet candidates = new BitSet(index.getDictionary().size());
+        for (int id : allowed) {
+            candidates.set(id);
+        }
+        return complete(text, limit, candidates);
+    }
+
+    /**
+     * Ranks the candidates that have a key starting with the text: terms with
+     * a key equal to the text first, then by the kind of key that matched
+     * (local name, prefixed name, label, inner word), then by the length of
+     * the key, then alphabetically.
+     */
+    private List<String> complete(String text, int limit, BitSet candidates) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        String prefix = normalize(text);
+        int from = lowerBound(prefix);
+        //score, then id, packed so that sorting them ranks the matches
+        long[] matches = new long[16];
+        int count = 0;
+        for (int i = from; i < keys.length && keys[i].startsWith(prefix); i++) {
+            int id = ids[i];
+            if (!candidates.get(id)) {
+                continue;
+            }
+            long exact = keys[i].length() == prefix.length() ? 0 : 1;
+            long length = Math.min(keys[i].length(), MAX_KEY_LENGTH);
+            long match = exact << 47 | (long) kinds[i] << 44 | length << 32 | id;
+            if (count == matches.length) {
+                matches = Arrays.copyOf(matches, count * 2);
+            }
+            matches[count++] = match;
+        }
+        Arrays.sort(matches, 0, count);
+        TermDictionary dictionary = index.getDictionary();
+        List<String> result = new ArrayList<String>(Math.min(limit, count));
+        BitSet seen = new BitSet();
+        for (int i = 0; i < count && result.size() < limit; i++) {
+            int id = (int) matches[i];
+            if (!seen.get(id)) {
+                seen.set(id);
+                result.add(dictionary.term(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The position of the first key not smaller than the text.
+     */
+    private int lowerBound(String text) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(text) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Key implements Comparable<Key> {
+
+        final String text;
+        final int id;
+        final int kind;
+
+        Key(String text, int id, int kind) {
+            this.text = text;
+            this.id = id;
+            this.kind = kind;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return text.compareTo(other.text);
+        }
+    }
+}
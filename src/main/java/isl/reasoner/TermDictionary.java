@@ -0,0 +1,101 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The URIs of a {@link SchemaIndex}, each stored once and numbered densely
+ * from 0. The numbers follow the order of the URIs, so sorted lists of URIs
+ * become sorted arrays of ids. The ids only mean something for the index the
+ * dictionary belongs to.
+ */
+public final class TermDictionary {
+
+    static final TermDictionary EMPTY = new TermDictionary(new String[0]);
+
+    private final String[] terms;
+    //open addressing table of id + 1, 0 marks a free slot
+    private final int[] table;
+    private final int mask;
+
+    private TermDictionary(String[] terms) {
+        this.terms = terms;
+        int capacity = Integer.highestOneBit(Math.max(2, terms.length * 2 - 1)) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        for (int id = 0; id < terms.length; id++) {
+            int slot = terms[id].hashCode() & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Builds the dictionary of a set of URIs.
+     */
+    static TermDictionary of(Collection<String> uris) {
+        String[] terms = uris.toArray(new String[uris.size()]);
+        Arrays.sort(terms);
+        return new TermDictionary(terms);
+    }
+
+    /**
+     * @param uri a URI
+     * @return the id of the URI, or -1 if it is not in the dictionary
+     */
+    public int id(String uri) {
+        int slot = uri.hashCode() & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (terms[entry - 1].equals(uri)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param id an id of this dictionary
+     * @return the URI with this id
+     * @throws IndexOutOfBoundsException if there is no such id
+     */
+    public String term(int id) {
+        return terms[id];
+    }
+
+    /**
+     * @return the number of URIs; the ids range from 0 to size() - 1
+     */
+    public int size() {
+        return terms.length;
+    }
+}
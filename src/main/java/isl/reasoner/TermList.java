@@ -0,0 +1,96 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable list of URIs stored as the ids of a {@link TermDictionary}.
+ * The URIs are looked up when they are read, and are the strings of the
+ * dictionary, shared by every list that contains them.
+ */
+public final class TermList extends AbstractList<String> implements RandomAccess {
+
+    private final TermDictionary dictionary;
+    private final int[] ids;
+
+    TermList(TermDictionary dictionary, int[] ids) {
+        this.dictionary = dictionary;
+        this.ids = ids;
+    }
+
+    @Override
+    public String get(int index) {
+        return dictionary.term(ids[index]);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param index a position of the list
+     * @return the id of the URI at this position
+     */
+    public int id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return a copy of the ids of the URIs
+     */
+    public int[] ids() {
+        return ids.clone();
+    }
+
+    /**
+     * The array itself, for the index that owns it; it must not be modified.
+     */
+    int[] sharedIds() {
+        return ids;
+    }
+
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof TermList && ((TermList) o).dictionary == dictionary) {
+            return Arrays.equals(ids, ((TermList) o).ids);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
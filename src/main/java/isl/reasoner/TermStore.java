@@ -0,0 +1,221 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A dictionary of strings numbered densely from 0 in the order they are
+ * added, each stored once as UTF-8 in large pages, on or off the heap. Per
+ * string it takes its UTF-8 bytes and about 20 bytes of index, instead of a
+ * String object and a hash map entry.
+ *
+ * Adding is not thread-safe; once everything is added the store can be read
+ * from several threads.
+ */
+final class TermStore {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int PAGE_BITS = 24;
+    private static final int PAGE_BYTES = 1 << PAGE_BITS;
+    private static final int FIRST_PAGE_BYTES = 64 * 1024;
+
+    private final boolean direct;
+    private final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+    private ByteBuffer page;
+    //where every string is: page (16 bits), offset in the page and length (24 bits each)
+    private long[] addresses = new long[1024];
+    private int[] hashes = new int[1024];
+    private int size;
+    //open addressing table of id + 1, 0 marks a free slot
+    private int[] table = new int[2048];
+
+    /**
+     * @param direct true to keep the strings off the heap
+     */
+    TermStore(boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * @return the id of the string, adding it if it is new
+     */
+    int intern(String term) {
+        byte[] bytes = term.getBytes(UTF8);
+        int hash = hash(term);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (hashes[entry - 1] == hash && matches(entry - 1, bytes)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = size++;
+        if (id == addresses.length) {
+            addresses = Arrays.copyOf(addresses, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        addresses[id] = append(bytes);
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the string, or -1 if it was never added
+     */
+    int id(String term) {
+        byte[] bytes = term.getBytes(UTF8);
+        int hash = hash(term);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (hashes[entry - 1] == hash && matches(entry - 1, bytes)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the string with this id
+     */
+    String get(int id) {
+        long address = addresses[id];
+        ByteBuffer buffer = pages.get((int) (address >>> 48)).duplicate();
+        int offset = (int) (address >>> PAGE_BITS) & (PAGE_BYTES - 1);
+        byte[] bytes = new byte[length(address)];
+        buffer.position(offset);
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes taken by the pages (on or off the heap) and the
+     * tables of the store
+     */
+    long bytes() {
+        long bytes = (long) addresses.length * 8 + (long) hashes.length * 4 + (long) table.length * 4;
+        for (ByteBuffer buffer : pages) {
+            bytes += buffer.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Gives back the room reserved for more strings, once they are all
+     * added. The last page is copied to one of its used size.
+     */
+    void trim() {
+        addresses = Arrays.copyOf(addresses, size);
+        hashes = Arrays.copyOf(hashes, size);
+        if (page != null && page.position() < page.capacity()) {
+            ByteBuffer trimmed = allocate(page.position());
+            ByteBuffer used = page.duplicate();
+            used.flip();
+            trimmed.put(used);
+            pages.set(pages.size() - 1, trimmed);
+            page = trimmed;
+        }
+    }
+
+    private static int length(long address) {
+        return (int) address & (PAGE_BYTES - 1);
+    }
+
+    private static int hash(String term) {
+        int hash = term.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean matches(int id, byte[] bytes) {
+        long address = addresses[id];
+        if (length(address) != bytes.length) {
+            return false;
+        }
+        ByteBuffer buffer = pages.get((int) (address >>> 48));
+        int offset = (int) (address >>> PAGE_BITS) & (PAGE_BYTES - 1);
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies a string to the pages.
+     *
+     * @return its address
+     */
+    private long append(byte[] bytes) {
+        if (bytes.length >= PAGE_BYTES) {
+            throw new IllegalArgumentException("Term longer than " + PAGE_BYTES + " bytes");
+        }
+        if (page == null || page.remaining() < bytes.length) {
+            //small stores stay small, the pages double up to their largest size
+            int capacity = page == null ? FIRST_PAGE_BYTES : Math.min(PAGE_BYTES, page.capacity() * 2);
+            page = allocate(Math.max(capacity, bytes.length));
+            pages.add(page);
+        }
+        long address = (long) (pages.size() - 1) << 48 | (long) page.position() << PAGE_BITS | bytes.length;
+        page.put(bytes);
+        return address;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private void rehash() {
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        table = grown;
+    }
+}
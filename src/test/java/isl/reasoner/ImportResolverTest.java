@@ -0,0 +1,123 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImportResolverTest {
+
+    private static final String MAIN = "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+            + "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+            + "<http://example.org/main> a owl:Ontology ; owl:imports <http://example.org/a> .\n"
+            + "<http://example.org/main#M> a owl:Class ; rdfs:subClassOf <http://example.org/a#A> .\n";
+
+    private static final String A = "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+            + "<http://example.org/a> a owl:Ontology .\n"
+            + "<http://example.org/a#A> a owl:Class .\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File main;
+    private File imported;
+    private ImportCatalog catalog;
+    private SchemaCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        ImportCatalog.clearParsedImports();
+        main = folder.newFile("main.ttl");
+        imported = folder.newFile("a.ttl");
+        write(main, MAIN);
+        write(imported, A);
+        catalog = new ImportCatalog();
+        catalog.addMapping("http://example.org/a", imported);
+        cache = new SchemaCache(64L * 1024 * 1024);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private OntologyReasoner load(InMemoryMetrics metrics) throws Exception {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.setSchemaCache(cache);
+        reasoner.setReasoningProfile(ReasoningProfile.FAST);
+        reasoner.setImportCatalog(catalog);
+        reasoner.setMetrics(metrics);
+        reasoner.initiateModel(main);
+        return reasoner;
+    }
+
+    @Test
+    public void loadsASchemaSeenBeforeWithoutParsingIt() throws Exception {
+        load(new InMemoryMetrics());
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        OntologyReasoner reasoner = load(metrics);
+
+        assertEquals(1, cache.getHits());
+        assertEquals(0, metrics.snapshot().getTimer(ReasonerMetrics.Operation.PARSE).getCount());
+        assertTrue(reasoner.getAllClasses().contains("http://example.org/a#A"));
+    }
+
+    @Test
+    public void loadsTheSchemaAgainWhenAnImportChanged() throws Exception {
+        load(new InMemoryMetrics());
+        write(imported, A.replace("#A>", "#B>"));
+        OntologyReasoner reasoner = load(new InMemoryMetrics());
+
+        assertEquals(0, cache.getHits());
+        assertTrue(reasoner.getAllClasses().contains("http://example.org/a#B"));
+    }
+
+    @Test
+    public void loadsTheSchemaAgainWhenTheCatalogMapsAnImportElsewhere() throws Exception {
+        load(new InMemoryMetrics());
+        File other = folder.newFile("other.ttl");
+        write(other, A.replace("#A>", "#C>"));
+        catalog = new ImportCatalog();
+        catalog.addMapping("http://example.org/a", other);
+        OntologyReasoner reasoner = load(new InMemoryMetrics());
+
+        assertEquals(0, cache.getHits());
+        assertTrue(reasoner.getAllClasses().contains("http://example.org/a#C"));
+    }
+}
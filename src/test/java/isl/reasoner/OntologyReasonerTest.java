@@ -0,0 +1,128 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OntologyReasonerTest {
+
+    private static final File FIXTURES = new File(System.getProperty("basedir", "."),
+            "benchmarks/src/main/resources/fixtures");
+
+    private static final String SUBCLASSES = "SELECT ?c ?d WHERE { ?c <http://www.w3.org/2000/01/rdf-schema#subClassOf> ?d }";
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static OntologyReasoner load(String fixture) throws Exception {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.initiateModel(new File(FIXTURES, fixture));
+        return reasoner;
+    }
+
+    private static List<Map<String, String>> select(OntologyReasoner reasoner) {
+        return reasoner.select(SUBCLASSES, Collections.<String, String>emptyMap());
+    }
+
+    @Test
+    public void queriesWhileAnotherSchemaIsClassified() throws Exception {
+        final OntologyReasoner reasoner = load("skos.ttl");
+        final CountDownLatch held = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        //stands for a long classification holding the lock of all the loads
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                synchronized (OntologyReasoner.PELLET_LOCK) {
+                    held.countDown();
+                    release.await();
+                }
+                return null;
+            }
+        });
+        held.await();
+        try {
+            Future<List<Map<String, String>>> rows = executor.submit(new Callable<List<Map<String, String>>>() {
+                @Override
+                public List<Map<String, String>> call() {
+                    return select(reasoner);
+                }
+            });
+            assertTrue(rows.get(30, TimeUnit.SECONDS).size() > 0);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void answersConcurrentQueriesLikeSequentialOnes() throws Exception {
+        final OntologyReasoner crm = load("crm.rdfs");
+        final OntologyReasoner skos = load("skos.ttl");
+        final List<Map<String, String>> crmRows = select(crm);
+        final List<Map<String, String>> skosRows = select(skos);
+        List<Future<Void>> runs = new ArrayList<Future<Void>>();
+        for (int i = 0; i < 4; i++) {
+            runs.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int j = 0; j < 10; j++) {
+                        assertEquals(crmRows, select(crm));
+                        assertEquals(skosRows, select(skos));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> run : runs) {
+            run.get(120, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.InvalidParameterException;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReasonerServerTest {
+
+    private static final String PERSON = "http://example.org/s#Person";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ReasonerServer server;
+    private RemoteReasoner client;
+
+    @Before
+    public void setUp() throws Exception {
+        File schema = folder.newFile("schema.ttl");
+        OutputStream out = new FileOutputStream(schema);
+        try {
+            out.write(("@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+                    + "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+                    + "<" + PERSON + "> a owl:Class .\n"
+                    + "<http://example.org/s#knows> a owl:ObjectProperty ; rdfs:domain <" + PERSON + "> ;"
+                    + " rdfs:range <" + PERSON + "> .\n").getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.setReasoningProfile(ReasoningProfile.FAST);
+        reasoner.initiateModel(schema);
+        server = new ReasonerServer(new InetSocketAddress("127.0.0.1", 0));
+        server.host("s", reasoner);
+        server.start();
+        client = new RemoteReasoner("http://127.0.0.1:" + server.getPort() + "/", "s");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void answersLikeTheLocalReasoner() throws IOException {
+        assertEquals(PERSON, client.listObjects("http://example.org/s#knows").get(0));
+    }
+
+    @Test(expected = InvalidParameterException.class)
+    public void rejectsAnEmptySubject() throws IOException {
+        client.listProperties("");
+    }
+
+    @Test(expected = InvalidParameterException.class)
+    public void rejectsAnEmptyProperty() throws IOException {
+        client.listObjects("");
+    }
+
+    @Test(expected = InvalidParameterException.class)
+    public void rejectsAPropertyWithLeadingWhitespaces() throws IOException {
+        client.listObjects(" http://example.org/s#knows");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsAnUnknownProperty() throws IOException {
+        client.listObjects("http://example.org/s#unknown");
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RemoteSchemaCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String location;
+    private volatile String etag = "\"1\"";
+    private volatile String content = "first";
+    private volatile int requests;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/schema.ttl", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests++;
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    byte[] body = content.getBytes("UTF-8");
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        location = "http://127.0.0.1:" + server.getAddress().getPort() + "/schema.ttl";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private RemoteSchemaCache cache() {
+        RemoteSchemaCache cache = new RemoteSchemaCache(folder.getRoot());
+        cache.setTimeoutMillis(2000);
+        return cache;
+    }
+
+    private static String get(RemoteSchemaCache cache, String location) throws IOException {
+        return new String(cache.get(location), "UTF-8");
+    }
+
+    @Test
+    public void downloadsASchemaSeenForTheFirstTime() throws IOException {
+        RemoteSchemaCache cache = cache();
+
+        assertEquals("first", get(cache, location));
+        assertEquals(1, cache.getFetches());
+        assertEquals(0, cache.getRevalidations());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void readsTheStoredCopyWhenTheServerAnswersNotModified() throws IOException {
+        get(cache(), location);
+        RemoteSchemaCache cache = cache();
+
+        assertEquals("first", get(cache, location));
+        assertEquals(0, cache.getFetches());
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void downloadsTheSchemaAgainWhenItsETagChanged() throws IOException {
+        get(cache(), location);
+        etag = "\"2\"";
+        content = "second";
+        RemoteSchemaCache cache = cache();
+
+        assertEquals("second", get(cache, location));
+        assertEquals(1, cache.getFetches());
+        assertEquals(0, cache.getHits());
+        //and the new copy is the one revalidated afterwards
+        assertEquals("second", get(cache, location));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void readsTheStoredCopyWhenTheServerIsDown() throws IOException {
+        get(cache(), location);
+        server.stop(0);
+        RemoteSchemaCache cache = cache();
+
+        assertEquals("first", get(cache, location));
+        assertEquals(1, cache.getFallbacks());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void downloadsTheSchemaAgainWhenTheStoredCopyDoesNotMatchItsValidators() throws IOException {
+        get(cache(), location);
+        for (File file : folder.getRoot().listFiles()) {
+            if (file.getName().endsWith(".body")) {
+                OutputStream out = new FileOutputStream(file);
+                try {
+                    out.write("torn".getBytes("UTF-8"));
+                } finally {
+                    out.close();
+                }
+            }
+        }
+        RemoteSchemaCache cache = cache();
+
+        assertEquals("first", get(cache, location));
+        assertEquals(1, cache.getFetches());
+        assertEquals(0, cache.getRevalidations());
+        assertEquals(2, requests);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SchemaCacheTest {
+
+    //relative IRIs, resolved against the location the schema is read from
+    private static final String RELATIVE = "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+            + "<#Person> a owl:Class .\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String directory, String content) throws IOException {
+        File file = new File(folder.newFolder(directory), "schema.ttl");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    //Jena writes the file URLs it resolves against as file:///
+    private static boolean declares(List<String> classes, String suffix) {
+        for (String uri : classes) {
+            if (uri.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private OntologyReasoner reasoner(SchemaCache cache) {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.setSchemaCache(cache);
+        reasoner.setReasoningProfile(ReasoningProfile.FAST);
+        return reasoner;
+    }
+
+    @Test
+    public void reusesTheSameContentsReadAgainstTheSameBase() throws Exception {
+        SchemaCache cache = new SchemaCache(64L * 1024 * 1024);
+        String url = write("a", RELATIVE).toURI().toString();
+        reasoner(cache).initiateModelUrl(url, ".ttl");
+        OntologyReasoner reasoner = reasoner(cache);
+        reasoner.initiateModelUrl(url, ".ttl");
+
+        assertEquals(1, cache.getHits());
+        assertTrue(declares(reasoner.getAllClasses(), "/a/schema.ttl#Person"));
+    }
+
+    @Test
+    public void keepsTheSameContentsReadAgainstAnotherBaseApart() throws Exception {
+        SchemaCache cache = new SchemaCache(64L * 1024 * 1024);
+        String first = write("a", RELATIVE).toURI().toString();
+        String second = write("b", RELATIVE).toURI().toString();
+        reasoner(cache).initiateModelUrl(first, ".ttl");
+        OntologyReasoner reasoner = reasoner(cache);
+        reasoner.initiateModelUrl(second, ".ttl");
+
+        assertEquals(0, cache.getHits());
+        List<String> classes = reasoner.getAllClasses();
+        assertTrue(declares(classes, "/b/schema.ttl#Person"));
+        assertFalse(declares(classes, "/a/schema.ttl#Person"));
+    }
+}
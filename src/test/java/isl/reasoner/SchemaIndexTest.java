@@ -0,0 +1,222 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import com.hp.hpl.jena.ontology.OntClass;
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.ontology.OntProperty;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.ResIterator;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import org.mindswap.pellet.jena.PelletReasonerFactory;
+
+/**
+ * Compares the answers of the schema index with the ones the reasoner gave
+ * before the index existed, when it asked the Pellet model directly, on the
+ * CIDOC-CRM and SKOS fixtures of the benchmarks.
+ *
+ * owl:Nothing is left out of the objects: Pellet lists it as a subclass of
+ * the range or not depending on the edits made to the model before. So is
+ * owl:bottomObjectProperty, whose range was whichever one Jena read first.
+ */
+public class SchemaIndexTest {
+
+    private static final File FIXTURES = new File(System.getProperty("basedir", "."),
+            "benchmarks/src/main/resources/fixtures");
+
+    @Test
+    public void answersLikeThePelletModelOnCrm() throws Exception {
+        compare(new File(FIXTURES, "crm.rdfs"), "RDF/XML");
+    }
+
+    @Test
+    public void answersLikeThePelletModelOnSkos() throws Exception {
+        compare(new File(FIXTURES, "skos.ttl"), "TTL");
+    }
+
+    private static void compare(File schema, String lang) throws Exception {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.initiateModel(schema);
+        OntModel model = ModelFactory.createOntologyModel(PelletReasonerFactory.THE_SPEC, null);
+        read(model, schema, lang);
+        model.prepare();
+
+        for (ExtendedIterator<OntClass> it = model.listNamedClasses(); it.hasNext();) {
+            String subject = it.next().getURI();
+            assertEquals(subject, listProperties(model, subject), reasoner.listProperties(subject));
+        }
+        for (String property : declaredProperties(schema, lang)) {
+            if (!property.equals(OWL.NS + "bottomObjectProperty")) {
+                assertEquals(property, withoutNothing(listObjects(model, property)),
+                        withoutNothing(reasoner.listObjects(property)));
+            }
+        }
+    }
+
+    private static void read(Model model, File schema, String lang) throws IOException {
+        InputStream in = new FileInputStream(schema);
+        try {
+            model.read(in, null, lang);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * The properties the schema declares, read without inference: listing
+     * the properties of the Pellet model fails on owl:bottomObjectProperty.
+     */
+    private static Set<String> declaredProperties(File schema, String lang) throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        read(model, schema, lang);
+        Set<String> properties = new TreeSet<String>();
+        Resource[] types = {RDF.Property, OWL.ObjectProperty, OWL.DatatypeProperty, OWL.AnnotationProperty,
+            OWL.TransitiveProperty, OWL.SymmetricProperty};
+        for (Resource type : types) {
+            ResIterator it = model.listSubjectsWithProperty(RDF.type, type);
+            while (it.hasNext()) {
+                Resource property = it.next();
+                if (property.isURIResource()) {
+                    properties.add(property.getURI());
+                }
+            }
+        }
+        return properties;
+    }
+
+    private static List<String> withoutNothing(List<String> objects) {
+        List<String> without = new ArrayList<String>(objects);
+        without.remove(OWL.Nothing.getURI());
+        return without;
+    }
+
+    /**
+     * listProperties as it asked the Pellet model.
+     */
+    private static List<String> listProperties(OntModel modelAll, String subject) {
+        List<String> listProps = new ArrayList<String>();
+        String query = "select ?property \n"
+                + "where {\n"
+                + "?property <" + RDFS.domain + "> <" + subject + ">\n"
+                + "}";
+        QueryExecution qe = QueryExecutionFactory.create(query, modelAll);
+        ResultSet rs = qe.execSelect();
+        while (rs.hasNext()) {
+            listProps.add(rs.next().get("property").toString());
+        }
+        OntClass c = modelAll.getOntClass(subject);
+        if (c != null) {
+            ExtendedIterator<OntProperty> itq = c.listDeclaredProperties(false);
+            while (itq.hasNext()) {
+                OntProperty property = itq.next();
+                if (property.getDomain() != null) {
+                    listProps.add(property.toString());
+                }
+            }
+            ExtendedIterator<? extends OntProperty> annotations = modelAll.listAnnotationProperties();
+            while (annotations.hasNext()) {
+                listProps.add(annotations.next().toString());
+            }
+        }
+        return sorted(listProps);
+    }
+
+    /**
+     * listObjects as it asked the Pellet model: the range Jena reads once the
+     * direct super properties are removed, with its subclasses.
+     */
+    private static List<String> listObjects(OntModel modelAll, String property) {
+        List<String> listObjects = new ArrayList<String>();
+        OntProperty p2 = modelAll.getOntProperty(property);
+        ExtendedIterator<? extends OntProperty> it = p2.listSuperProperties(true);
+        List<Property> list = new ArrayList<Property>();
+        while (it.hasNext()) {
+            list.add(it.next());
+        }
+        for (Property list1 : list) {
+            p2.removeSuperProperty(list1);
+        }
+        RDFNode range = p2.getRange();
+        if (range != null) {
+            listObjects.add(range.toString());
+            OntClass objectClass = modelAll.getOntClass(range.toString());
+            if (objectClass != null) {
+                ExtendedIterator<OntClass> listSubClasses = objectClass.listSubClasses();
+                while (listSubClasses.hasNext()) {
+                    listObjects.add(listSubClasses.next().toString());
+                }
+            }
+            for (Property list1 : list) {
+                p2.addSuperProperty(list1);
+            }
+        } else {
+            for (Property list1 : list) {
+                p2.addSuperProperty(list1);
+            }
+            StmtIterator it2 = modelAll.listStatements(p2, RDFS.subPropertyOf, (RDFNode) null);
+            while (it2.hasNext()) {
+                OntClass subProperty = modelAll.getOntClass(it2.next().getObject().toString());
+                if (subProperty != null) {
+                    StmtIterator rangeClasses = modelAll.listStatements(subProperty, RDFS.range, (RDFNode) null);
+                    while (rangeClasses.hasNext()) {
+                        listObjects.add(rangeClasses.next().getObject().toString());
+                    }
+                }
+            }
+        }
+        return sorted(listObjects);
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> sorted = new ArrayList<String>(new LinkedHashSet<String>(values));
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SchemaRegistryTest {
+
+    private static final String SCHEMA = "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+            + "<http://example.org/s#Person> a owl:Class .\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File snapshots;
+    private File schema;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshots = folder.newFolder("snapshots");
+        schema = folder.newFile("schema.ttl");
+        write(schema, SCHEMA);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * A registry as a new process would create it, with the set registered.
+     */
+    private SchemaRegistry registry() {
+        SchemaRegistry registry = new SchemaRegistry(snapshots, 64L * 1024 * 1024);
+        registry.setReasoningProfile(ReasoningProfile.FAST);
+        registry.register("set", "1", Collections.<String>emptyList(),
+                Collections.singletonList(SchemaSource.file(schema)));
+        return registry;
+    }
+
+    @Test
+    public void restoresASetWhoseFilesDidNotChange() throws Exception {
+        registry().get("set", "1");
+        SchemaRegistry registry = registry();
+
+        assertTrue(registry.get("set", "1").getAllClasses().contains("http://example.org/s#Person"));
+        assertEquals(1, registry.getRestores());
+        assertEquals(0, registry.getLoads());
+    }
+
+    @Test
+    public void loadsASetAgainWhenAFileWasEditedInPlace() throws Exception {
+        registry().get("set", "1");
+        write(schema, SCHEMA.replace("#Person>", "#Agent>"));
+        SchemaRegistry registry = registry();
+        OntologyReasoner reasoner = registry.get("set", "1");
+
+        assertTrue(reasoner.getAllClasses().contains("http://example.org/s#Agent"));
+        assertFalse(reasoner.getAllClasses().contains("http://example.org/s#Person"));
+        assertEquals(0, registry.getRestores());
+        assertEquals(1, registry.getLoads());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ Copyright 2015 Institute of Computer Science,
+ Foundation for Research and Technology - Hellas
+
+ Licensed under the EUPL, Version 1.1 or - as soon they will be approved
+ by the European Commission - subsequent versions of the EUPL (the "Licence");
+ You may not use this work except in compliance with the Licence.
+ You may obtain a copy of the Licence at:
+
+ http://ec.europa.eu/idabc/eupl
+
+ Unless required by applicable law or agreed to in writing, software distributed
+ under the Licence is distributed on an "AS IS" basis,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the Licence for the specific language governing permissions and limitations
+ under the Licence.
+
+ Contact:  POBox 1385, Heraklio Crete, GR-700 13 GREECE
+ Tel:+30-2810-391632
+ Fax: +30-2810-391638
+ E-mail: isl@ics.forth.gr
+ http://www.ics.forth.gr/isl
+
+ Authors : Konstantina Konsolaki, Georgios Samaritakis
+ This file is part of the Reasoner project.
+ */
+package isl.reasoner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TermCompleterTest {
+
+    private static final String SKOS = "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+            + "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+            + "@prefix skos: <http://www.w3.org/2004/02/skos/core#> .\n"
+            + "skos:Concept a owl:Class .\n"
+            + "skos:prefLabel a owl:AnnotationProperty ; rdfs:subPropertyOf rdfs:label .\n"
+            + "skos:broader a owl:ObjectProperty ; rdfs:domain skos:Concept ; rdfs:range skos:Concept .\n";
+
+    private static final String CERIF = "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+            + "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+            + "@prefix cerif: <http://eurocris.org/ontology/cerif#> .\n"
+            + "cerif:Person a owl:Class .\n"
+            + "cerif:Project a owl:Class .\n"
+            + "cerif:worksOn a owl:ObjectProperty ; rdfs:domain cerif:Person ; rdfs:range cerif:Project .\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private OntologyReasoner reasoner() {
+        OntologyReasoner reasoner = new OntologyReasoner();
+        reasoner.setSchemaCache(null);
+        return reasoner;
+    }
+
+    @Test
+    public void completesThePrefixesOfOneSchema() throws Exception {
+        OntologyReasoner reasoner = reasoner();
+        reasoner.initiateModel(write("skos.ttl", SKOS));
+
+        assertTrue(reasoner.complete("skos:pref", 10).contains("http://www.w3.org/2004/02/skos/core#prefLabel"));
+    }
+
+    @Test
+    public void completesThePrefixesOfEverySchemaLoaded() throws Exception {
+        OntologyReasoner reasoner = reasoner();
+        reasoner.initiateModel(write("skos.ttl", SKOS));
+        reasoner.initiateModel(write("cerif.ttl", CERIF));
+
+        assertTrue(reasoner.complete("skos:pref", 10).contains("http://www.w3.org/2004/02/skos/core#prefLabel"));
+        assertTrue(reasoner.complete("skos:Conc", 10).contains("http://www.w3.org/2004/02/skos/core#Concept"));
+        List<String> cerif = reasoner.completeClasses("cerif:pers", 10);
+        assertEquals("http://eurocris.org/ontology/cerif#Person", cerif.get(0));
+    }
+}